@@ -0,0 +1,90 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Oracle of the benchmarks answering at once: the question is formatted like the one written to
+ * the external oracle, its bytes being counted and dropped, and the answer is a fixed model in
+ * which the variable "N * j + i" holds only for "i = j + 1", placing a single family on each of
+ * the first slots.
+ */
+public class StubOracle implements Oracle, WritableByteChannel {
+    private final int nrFamilies; // number of families of the problem
+    private int[] model = new int[0]; // answer given to the last question
+    long bytes; // bytes of the last question
+
+    /**
+     * @param nrFamilies the number of families of the problem
+     */
+    public StubOracle(int nrFamilies) {
+        this.nrFamilies = Math.max(nrFamilies, 1);
+    }
+
+    @Override
+    public ClauseSink question() {
+        bytes = 0;
+        StubOracle stub = this;
+        return new DimacsWriter(this) {
+            @Override
+            public void header(long nrVariables, long nrClauses) throws IOException {
+                stub.answer(nrVariables);
+                super.header(nrVariables, nrClauses);
+            }
+
+            @Override
+            public void header(long nrVariables, long nrClauses, long top) throws IOException {
+                stub.answer(nrVariables);
+                super.header(nrVariables, nrClauses, top);
+            }
+        };
+    }
+
+    /**
+     * Builds the model answering a question with the given number of variables.
+     *
+     * @param nrVariables the number of variables of the question
+     */
+    private void answer(long nrVariables) {
+        if (model.length != nrVariables) {
+            model = new int[Math.toIntExact(nrVariables)];
+            for (int i = 0; i < model.length; ++i) {
+                model[i] = i % nrFamilies == i / nrFamilies ? i + 1 : -(i + 1);
+            }
+        }
+    }
+
+    @Override
+    public void ask() {
+        // the answer is known as soon as the question is formulated
+    }
+
+    @Override
+    public boolean isSatisfiable() {
+        return true;
+    }
+
+    @Override
+    public int[] getModel() {
+        return model;
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+        int size = source.remaining();
+        source.position(source.limit());
+        bytes += size;
+        return size;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // the question is dropped
+    }
+}
@@ -0,0 +1,143 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import benchmarks.Fixture;
+
+/**
+ * Drives the steps of a task for the benchmarks, which can not refer to the classes of the
+ * default package themselves. The oracle of the task is replaced by a stub, so only the Java
+ * side is measured; task3 formulates the input of task2 and deciphers a fixed answer of it.
+ */
+public class TaskFixture implements Fixture {
+    private Task task; // task whose steps are measured
+    private StubOracle stub; // oracle of the task
+
+    @Override
+    public void setUp(String taskName, String inFilename, String scratch, String settings,
+                      int parameter) throws IOException {
+        switch (taskName) {
+            case "task1":
+                task = new Task1() {
+                    @Override
+                    public ClauseSink openOracleQuestion() {
+                        return ask(this);
+                    }
+                };
+                break;
+            case "task2":
+                task = new Task2() {
+                    @Override
+                    public ClauseSink openOracleQuestion() {
+                        return ask(this);
+                    }
+                };
+                break;
+            case "task3":
+                Task3 task3 = new Task3();
+                task3.task2InFilename = scratch + "_t2";
+                task3.task2OutFilename = scratch + "_t2.out";
+                task3.sizeExtendedFamily = parameter;
+                StringBuilder answer = new StringBuilder("True\n");
+                for (int family = 1; family <= parameter; ++family) {
+                    answer.append(family).append(' ');
+                }
+                Files.write(Paths.get(task3.task2OutFilename),
+                        answer.toString().getBytes(StandardCharsets.UTF_8));
+                task = task3;
+                break;
+            case "bonus":
+                task = new BonusTask() {
+                    @Override
+                    public ClauseSink openOracleQuestion() {
+                        return ask(this);
+                    }
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("Not a valid task: " + taskName);
+        }
+
+        Options options = Options.parse(settings.isEmpty() ? new String[0]
+                : settings.trim().split("\\s+"), 0);
+        task.addFiles(inFilename, scratch + ".cnf", scratch + ".sol", scratch + ".out");
+        task.addOptions(options);
+        // the encoder is kept between the questions, like a daemon worker does
+        task.encoder = new ParallelEncoder(options.threads);
+    }
+
+    /**
+     * Replaces the oracle of the task by the stub.
+     *
+     * @param questioned the task formulating its question
+     * @return the sink receiving the clauses of the question
+     */
+    private ClauseSink ask(Task questioned) {
+        if (stub == null) {
+            stub = new StubOracle(familiesOf(questioned));
+        }
+        questioned.oracle = stub;
+        return stub.question();
+    }
+
+    /**
+     * @param questioned the task formulating its question
+     * @return the number of families of the problem read by the task
+     */
+    private static int familiesOf(Task questioned) {
+        if (questioned instanceof Task1) {
+            return ((Task1) questioned).nrFamilies;
+        }
+        if (questioned instanceof Task2) {
+            return ((Task2) questioned).nrFamilies;
+        }
+        return ((BonusTask) questioned).nrFamilies;
+    }
+
+    @Override
+    public void read() throws IOException {
+        task.readProblemData();
+    }
+
+    @Override
+    public long formulate() throws IOException {
+        if (task instanceof Task3) {
+            Task3 task3 = (Task3) task;
+            task3.reduceToTask2();
+            return Files.size(Paths.get(task3.task2InFilename));
+        }
+        task.formulateOracleQuestion();
+        return stub.bytes;
+    }
+
+    @Override
+    public void decipher() throws IOException {
+        // the lists filled by the deciphering start empty, as in a single run
+        if (task instanceof Task1) {
+            ((Task1) task).assignedSpies.clear();
+        } else if (task instanceof Task2) {
+            ((Task2) task).extendedFamily.clear();
+        } else if (task instanceof BonusTask) {
+            ((BonusTask) task).extendedFamily.clear();
+        }
+
+        if (task instanceof Task3) {
+            ((Task3) task).extractAnswerFromTask2();
+        } else {
+            task.decipherOracleAnswer();
+        }
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        task.encoder.close();
+        Files.deleteIfExists(Paths.get(task.outFilename));
+        if (task instanceof Task3) {
+            Files.deleteIfExists(Paths.get(((Task3) task).task2InFilename));
+            Files.deleteIfExists(Paths.get(((Task3) task).task2OutFilename));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// Copyright 2020
+
+package benchmarks;
+
+import java.io.IOException;
+
+/**
+ * Steps of a task measured by the benchmarks. The tasks live in the default package, which the
+ * benchmarks (kept in a named package, as JMH requires) can not refer to, so the steps are
+ * driven through this interface by the TaskFixture class of the default package, loaded by name.
+ */
+public interface Fixture {
+    /**
+     * Creates the task, its oracle being replaced by a stub which answers at once.
+     *
+     * @param taskName   the name of the task
+     * @param inFilename the file containing the problem input
+     * @param scratch    the prefix of the files written by the task
+     * @param settings   the settings of the task, in the "--name=value" form
+     * @param parameter  the size of the extended family asked by task3
+     * @throws IOException input/output exception to be thrown
+     */
+    void setUp(String taskName, String inFilename, String scratch, String settings,
+               int parameter) throws IOException;
+
+    /**
+     * Reads the problem input.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    void read() throws IOException;
+
+    /**
+     * Formulates the question of the task: the question addressed to the oracle, or the input
+     * of task2 for task3.
+     *
+     * @return the number of bytes of the question
+     * @throws IOException input/output exception to be thrown
+     */
+    long formulate() throws IOException;
+
+    /**
+     * Deciphers the answer given to the last question.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    void decipher() throws IOException;
+
+    /**
+     * Releases the encoder and the files of the task.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    void tearDown() throws IOException;
+}
@@ -0,0 +1,56 @@
+// Copyright 2020
+
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of the problem inputs of the benchmarks: Erdős–Rényi graphs with "N" families, every
+ * pair of them being related with the given probability, drawn from a fixed seed so every run
+ * measures the same graphs.
+ */
+public final class Graphs {
+    private static final long SEED = 2020;
+
+    private Graphs() {
+    }
+
+    /**
+     * Writes the input file of a task.
+     *
+     * @param file       the destination of the problem input
+     * @param taskName   the name of the task, task1 and task2 having "K" on their first line
+     * @param nrFamilies the number of families
+     * @param density    the probability of every pair of families to be related
+     * @param parameter  the number of spies or the size of the extended family
+     * @throws IOException input/output exception to be thrown
+     */
+    public static void write(Path file, String taskName, int nrFamilies, double density,
+                             int parameter) throws IOException {
+        // draws the relations first, the header holding their number
+        SplittableRandom random = new SplittableRandom(SEED);
+        StringBuilder relations = new StringBuilder();
+        long nrRelations = 0;
+        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
+            for (int family2 = family1 + 1; family2 <= nrFamilies; ++family2) {
+                if (random.nextDouble() < density) {
+                    relations.append(family1).append(' ').append(family2).append('\n');
+                    ++nrRelations;
+                }
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(nrFamilies + " " + nrRelations);
+            if (taskName.equals("task1") || taskName.equals("task2")) {
+                writer.write(" " + parameter);
+            }
+            writer.write("\n");
+            writer.append(relations);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright 2020
+
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the Java side of every task: reading the problem input, formulating the question
+ * and deciphering the answer, the oracle being stubbed. The generated graphs vary in the number
+ * of families, the density of the relations and "K" (ignored by the bonus task, which derives it
+ * from the graph), and the tasks may be given other settings ("-p settings=..."). The bytes of
+ * the formulated questions are reported per second next to the throughput; the allocation rate
+ * is given by the gc profiler ("-prof gc").
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskBenchmark {
+    @Param({"task1", "task2", "task3", "bonus"})
+    String task;
+
+    @Param({"50", "200"})
+    int families;
+
+    @Param({"0.1", "0.5"})
+    double density;
+
+    @Param({"3", "8"})
+    int k;
+
+    // settings of the tasks, such as "--cover=compact --threads=4"
+    @Param({""})
+    String settings;
+
+    private Path scratch; // directory of the input and of the files written by the task
+    private Fixture fixture; // task whose steps are measured
+
+    /**
+     * Bytes of the formulated questions, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ReflectiveOperationException {
+        scratch = Files.createTempDirectory("benchmark");
+        Path input = scratch.resolve("in");
+        Graphs.write(input, task, families, density, k);
+
+        fixture = (Fixture) Class.forName("TaskFixture").getDeclaredConstructor().newInstance();
+        fixture.setUp(task, input.toString(), scratch.resolve("task").toString(), settings, k);
+        // the question is formulated once, so its answer may be deciphered
+        fixture.read();
+        fixture.formulate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.tearDown();
+        try (Stream<Path> files = Files.list(scratch)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(scratch);
+    }
+
+    @Benchmark
+    public void readProblemData() throws IOException {
+        fixture.read();
+    }
+
+    @Benchmark
+    public void formulateOracleQuestion(Output output) throws IOException {
+        output.bytes += fixture.formulate();
+    }
+
+    @Benchmark
+    public void decipherOracleAnswer() throws IOException {
+        fixture.decipher();
+    }
+}
@@ -0,0 +1,189 @@
+// Copyright 2020
+
+import java.io.IOException;
+
+/**
+ * Encodes the constraint that at most one of a group of variables is true, using one of the
+ * following encodings (with "n" being the size of the group):
+ * pairwise   - a binary clause for every pair of variables (n * (n - 1) / 2 clauses, no new
+ *              variable)
+ * sequential - Sinz's sequential counter, whose auxiliary variable "s_i" holds whenever one of
+ *              the first "i" variables is true (3 * n - 4 clauses, n - 1 new variables)
+ * commander  - Klieber and Kwon's commander encoding, splitting the group in triples whose
+ *              commanders are recursively constrained (about 3.3 * n clauses, n / 2 new variables)
+ * product    - Chen's product encoding, placing the variables on a grid of about sqrt(n) rows and
+ *              columns whose variables are recursively constrained (about 2 * n clauses,
+ *              2 * sqrt(n) new variables)
+ * The auxiliary variables are allocated consecutively, starting from the given first variable,
+ * so the numbering of the variables of the problem does not depend on the encoding.
+ */
+public class AtMostOne {
+    // groups smaller than this are always encoded pairwise, being cheaper than any alternative
+    private static final int PAIRWISE_LIMIT = 5;
+    private static final int COMMANDER_GROUP = 3; // size of the groups of the commander encoding
+
+    private final String encoding; // name of the selected encoding
+    private final ClauseSink writer; // destination of the clauses, or null when only counting
+    private final long weight; // weight written before every clause, or 0 for a CNF question
+    int nextVariable; // first auxiliary variable not allocated yet
+    long nrClauses; // number of clauses written so far
+
+    /**
+     * @param encoding      the name of the encoding ("pairwise", "sequential", "commander" or
+     *                      "product")
+     * @param writer        the destination of the clauses
+     * @param firstVariable the first variable that may be allocated as auxiliary
+     * @param weight        the weight of the clauses, or 0 for a CNF question
+     */
+    public AtMostOne(String encoding, ClauseSink writer, int firstVariable, long weight) {
+        this.encoding = encoding;
+        this.writer = writer;
+        this.nextVariable = firstVariable;
+        this.weight = weight;
+    }
+
+    /**
+     * Computes the number of clauses written for a group of the given size.
+     *
+     * @param encoding the name of the encoding
+     * @param size     the number of variables of the group
+     * @return the number of clauses
+     */
+    public static long countClauses(String encoding, int size) {
+        return count(encoding, size).nrClauses;
+    }
+
+    /**
+     * Computes the number of auxiliary variables allocated for a group of the given size.
+     *
+     * @param encoding the name of the encoding
+     * @param size     the number of variables of the group
+     * @return the number of auxiliary variables
+     */
+    public static int countVariables(String encoding, int size) {
+        return count(encoding, size).nextVariable - (size + 1);
+    }
+
+    /**
+     * Runs the encoding of a group of the given size without writing any clause.
+     */
+    private static AtMostOne count(String encoding, int size) {
+        int[] variables = new int[size];
+        for (int i = 0; i < size; ++i) {
+            variables[i] = i + 1;
+        }
+        AtMostOne counter = new AtMostOne(encoding, null, size + 1, 0);
+        try {
+            counter.encode(variables, size);
+        } catch (IOException e) {
+            throw new AssertionError(e); // nothing is written while counting
+        }
+        return counter;
+    }
+
+    /**
+     * Writes the clauses forbidding two of the given variables to be true at the same time.
+     *
+     * @param variables the variables of the group
+     * @param size      the number of variables to be taken from the array
+     * @throws IOException input/output exception to be thrown
+     */
+    public void encode(int[] variables, int size) throws IOException {
+        if (size < PAIRWISE_LIMIT) {
+            encodePairwise(variables, size);
+            return;
+        }
+        switch (encoding) {
+            case "sequential":
+                encodeSequential(variables, size); break;
+            case "commander":
+                encodeCommander(variables, size); break;
+            case "product":
+                encodeProduct(variables, size); break;
+            default:
+                encodePairwise(variables, size);
+        }
+    }
+
+    private void encodePairwise(int[] variables, int size) throws IOException {
+        if (writer == null) {
+            // only counts the pairs, which may be too many for being enumerated
+            nrClauses += (long) size * (size - 1) / 2;
+            return;
+        }
+        for (int i = 0; i < size - 1; ++i) {
+            for (int j = i + 1; j < size; ++j) {
+                // the two variables can not be true at the same time
+                clause(-variables[i], -variables[j]);
+            }
+        }
+    }
+
+    private void encodeSequential(int[] variables, int size) throws IOException {
+        // the auxiliary variable "s_i" is set by each of the first "i" variables and propagates
+        // to "s_(i+1)", while variable "i + 1" can not be true once "s_i" is set
+        int counter = nextVariable;
+        nextVariable += size - 1;
+        clause(-variables[0], counter);
+        for (int i = 1; i < size - 1; ++i) {
+            clause(-variables[i], counter + i);
+            clause(-(counter + i - 1), counter + i);
+            clause(-variables[i], -(counter + i - 1));
+        }
+        clause(-variables[size - 1], -(counter + size - 2));
+    }
+
+    private void encodeCommander(int[] variables, int size) throws IOException {
+        int nrGroups = (size + COMMANDER_GROUP - 1) / COMMANDER_GROUP;
+        int[] commanders = new int[nrGroups];
+        int[] group = new int[COMMANDER_GROUP];
+
+        for (int g = 0; g < nrGroups; ++g) {
+            commanders[g] = nextVariable++;
+            // at most one variable of the group is true, and any of them sets the commander
+            int groupSize = Math.min(COMMANDER_GROUP, size - g * COMMANDER_GROUP);
+            System.arraycopy(variables, g * COMMANDER_GROUP, group, 0, groupSize);
+            encodePairwise(group, groupSize);
+            for (int i = 0; i < groupSize; ++i) {
+                clause(-group[i], commanders[g]);
+            }
+        }
+
+        // at most one group may have its commander set
+        encode(commanders, nrGroups);
+    }
+
+    private void encodeProduct(int[] variables, int size) throws IOException {
+        int nrRows = (int) Math.ceil(Math.sqrt(size));
+        int nrColumns = (size + nrRows - 1) / nrRows;
+        int[] rows = new int[nrRows];
+        int[] columns = new int[nrColumns];
+        for (int i = 0; i < nrRows; ++i) {
+            rows[i] = nextVariable++;
+        }
+        for (int i = 0; i < nrColumns; ++i) {
+            columns[i] = nextVariable++;
+        }
+
+        // every variable sets the variables of its row and of its column, so two true variables
+        // would set either two rows or two columns
+        for (int i = 0; i < size; ++i) {
+            clause(-variables[i], rows[i / nrColumns]);
+            clause(-variables[i], columns[i % nrColumns]);
+        }
+        encode(rows, nrRows);
+        encode(columns, nrColumns);
+    }
+
+    private void clause(int literal1, int literal2) throws IOException {
+        ++nrClauses;
+        if (writer != null) {
+            if (weight > 0) {
+                writer.weight(weight);
+            }
+            writer.add(literal1);
+            writer.add(literal2);
+            writer.add(0);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+// Copyright 2020
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Batch mode solving all the jobs of a manifest in a single JVM, so the start of the JVM and the
+ * warm-up of its JIT compiler are paid once for all of them. Every line of the manifest holds the
+ * arguments of a run ("<task> <input_file> <SAT_input_file> <SAT_output_file> <output_file>",
+ * optionally followed by settings of its own), empty lines and lines starting with '#' being
+ * skipped. The settings given after the manifest apply to all the jobs, those of a line taking
+ * precedence.
+ * The jobs are solved by a fixed pool of worker threads, the manifest being read at most twice
+ * as many jobs ahead of them. Waiting for an oracle process blocks a worker, so there may be
+ * more workers than processors. The oracle files of every job are placed in a temporary
+ * directory of its own, so jobs naming the same oracle files do not clash; the directory is
+ * removed once the job is over. The other intermediate files of a run (such as those of its
+ * components) are named after its own oracle or output files, never after its input file, so
+ * jobs sharing an input file do not clash either, its directory being only read. The batch
+ * ends with its throughput and the distribution of the latencies of its jobs.
+ */
+public class Batch {
+    private final ExecutorService pool; // workers solving the jobs
+    private final Semaphore pending; // jobs read from the manifest and not solved yet
+    // time spent solving every job, in nanoseconds
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger nrFailures = new AtomicInteger(); // jobs which failed
+
+    /**
+     * @param nrWorkers the number of jobs solved at once
+     */
+    public Batch(int nrWorkers) {
+        pool = Executors.newFixedThreadPool(nrWorkers);
+        pending = new Semaphore(2 * nrWorkers);
+    }
+
+    /**
+     * Solves all the jobs of a manifest and reports the statistics of the batch.
+     *
+     * @param manifest the file listing the jobs
+     * @param args     the command line arguments
+     * @param first    the index of the first setting shared by all the jobs
+     * @return whether all the jobs were solved
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    public boolean run(String manifest, String[] args, int first)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int nrJobs = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                ++lineNumber;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                ++nrJobs;
+
+                // places the shared settings before the ones of the job, which override them
+                String[] job = line.split("\\s+");
+                if (job.length < 5 || Main.factory(job[0]) == null) {
+                    fail(lineNumber, "not a valid job");
+                    continue;
+                }
+                List<String> arguments = new ArrayList<>(Arrays.asList(job).subList(0, 5));
+                arguments.addAll(Arrays.asList(args).subList(first, args.length));
+                arguments.addAll(Arrays.asList(job).subList(5, job.length));
+                Options options;
+                try {
+                    options = Options.parse(arguments.toArray(new String[0]), 5);
+                } catch (IllegalArgumentException e) {
+                    fail(lineNumber, e.getMessage());
+                    continue;
+                }
+
+                // waits for a worker to get close to the job before handing it over
+                pending.acquire();
+                int jobLine = lineNumber;
+                pool.execute(() -> {
+                    try {
+                        solve(job, options);
+                    } catch (Exception e) {
+                        fail(jobLine, e.toString());
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        report(nrJobs, System.nanoTime() - start);
+        return nrFailures.get() == 0;
+    }
+
+    /**
+     * Solves a job, its oracle files being placed in a temporary directory removed afterwards.
+     *
+     * @param job     the arguments of the job
+     * @param options the settings of the job
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    private void solve(String[] job, Options options) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Path scratch = Files.createTempDirectory("batch");
+        try {
+            Task task = Main.createTask(job[0], options);
+            task.addFiles(job[1], scratch.resolve(Paths.get(job[2]).getFileName()).toString(),
+                    scratch.resolve(Paths.get(job[3]).getFileName()).toString(), job[4]);
+            task.addOptions(options);
+            task.solve();
+            task.writeMetrics(job[0]);
+        } finally {
+            try (Stream<Path> files = Files.list(scratch)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(scratch);
+        }
+        latencies.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Reports a job which could not be solved.
+     *
+     * @param lineNumber the line of the job in the manifest
+     * @param message    the cause of the failure
+     */
+    private void fail(int lineNumber, String message) {
+        nrFailures.incrementAndGet();
+        System.err.println("batch: job on line " + lineNumber + " failed: " + message);
+    }
+
+    /**
+     * Prints the throughput of the batch and the distribution of the latencies of its solved
+     * jobs to the standard error.
+     *
+     * @param nrJobs  the number of jobs of the manifest
+     * @param elapsed the duration of the batch, in nanoseconds
+     */
+    private void report(int nrJobs, long elapsed) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double seconds = elapsed / 1e9;
+        System.err.printf("batch: %d jobs, %d failed, in %.3f s (%.1f jobs/s)%n", nrJobs,
+                nrFailures.get(), seconds, sorted.length / seconds);
+        if (sorted.length == 0) {
+            return;
+        }
+
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        System.err.printf("batch: latency mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms,"
+                + " max %.2f ms%n", mean / 1e6, percentile(sorted, 50) / 1e6,
+                percentile(sorted, 90) / 1e6, percentile(sorted, 99) / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * @param sorted  the latencies in increasing order
+     * @param percent the percentage of the latencies to be covered
+     * @return the smallest latency not exceeded by the given percentage of the jobs
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -13,23 +13,55 @@ import java.util.*;
  * writeAnswer             - write the current problem's answer
  */
 public class BonusTask extends Task {
+    // biggest size of the extended family whose hard weight "2^(K - 2)" fits in 64 bits
+    private static final int MAX_EXPONENTIAL_SIZE = 64;
+
     int nrFamilies; // number of the Mafia families (corresponding to "N")
     int nrRelations; // number of related families (corresponding to "M")
     int sizeExtendedFamily; // size of the searched extended family (corresponding to "K")
-    // list of lists of all relations between the Mafia families
-    List<List<Integer>> relations = new ArrayList<>();
-    // list of lists of all non-relations between the Mafia families
-    List<List<Integer>> complementRelations = new ArrayList<>();
+    Graph relations; // graph of all relations between the Mafia families
+    VertexCoverKernel kernel; // reduced instance whose cover is lifted, if enabled
     // list of the extended family members of the complementary graph of relations
     List<Integer> extendedFamily = new ArrayList<>();
+    boolean optimal = true; // whether the answer is proved optimal
+    int nrArrests; // number of families arrested by the answer
 
     @Override
     public void solve() throws IOException, InterruptedException {
-        readProblemData();
-        formulateOracleQuestion();
-        askOracle();
-        decipherOracleAnswer();
-        writeAnswer();
+        measure("readProblemData", this::readProblemData);
+        if (sizeExtendedFamily < 2) {
+            // without any complementary relation a single family is the whole extended family,
+            // which needs no question (nor a hard clause weight below the one of the soft ones)
+            if (nrFamilies > 0) {
+                extendedFamily.add(1);
+            }
+        } else {
+            measure("formulateOracleQuestion", this::formulateOracleQuestion);
+            measure("askOracle", this::askOracle);
+            measure("decipherOracleAnswer", this::decipherOracleAnswer);
+            // an answer given up at the deadline (or at the time limit of the Max-SAT oracle) is
+            // replaced by a greedy independent set whenever the latter is bigger
+            optimal = !oracle.timedOut()
+                    && (!(oracle instanceof MaxSatOracle) || ((MaxSatOracle) oracle).optimal);
+            if (!optimal) {
+                List<Integer> greedy = relations.greedyIndependentSet();
+                if (greedy.size() > extendedFamily.size()) {
+                    extendedFamily = greedy;
+                }
+            }
+            if (options.stats && oracle instanceof MaxSatOracle) {
+                MaxSatOracle maxSat = (MaxSatOracle) oracle;
+                System.err.println("bonus: cost bounds [" + maxSat.lowerBound + ", "
+                        + maxSat.upperBound + "], " + maxSat.nrCores + " cores, "
+                        + (maxSat.optimal ? "optimal" : "not proved optimal"));
+            }
+        }
+        metrics.answer(optimal);
+        measure("writeAnswer", this::writeAnswer);
+        if (options.deadline > 0) {
+            System.err.println("bonus: " + nrArrests + " arrests, "
+                    + (optimal ? "optimal" : "not proved optimal at the deadline"));
+        }
     }
 
     /**
@@ -42,7 +74,7 @@ public class BonusTask extends Task {
             families.add(family);
         }
         // sorts the list of families according to their numbers of complementary relations
-        families.sort(Comparator.comparingInt(o -> complementRelations.get(o).size()));
+        families.sort(Comparator.comparingInt(this::complementDegree));
 
         // used for calculating the maximum degree of a node in a clique based on the
         // complementary relations
@@ -54,15 +86,15 @@ public class BonusTask extends Task {
             // for each family, verifies whether its respective connected families have at least
             // the same amount of relations as the current family, otherwise the current node can
             // not be part of a clique
-            for (j = 0; j < complementRelations.get(family).size(); ++j) {
-                if (complementRelations.get(complementRelations.get(family).get(j)).size()
-                        < complementRelations.get(family).size()) {
+            for (j = relations.nextNonNeighbour(family, 1); j > 0;
+                    j = relations.nextNonNeighbour(family, j + 1)) {
+                if (complementDegree(j) < complementDegree(family)) {
                     break;
                 }
             }
             // if the condition is respected, updates the degree of a clique node
-            if (j == complementRelations.get(family).size()) {
-                degree = complementRelations.get(family).size();
+            if (j < 0) {
+                degree = complementDegree(family);
             }
         }
 
@@ -72,198 +104,260 @@ public class BonusTask extends Task {
         }
     }
 
+    /**
+     * Computes the number of complementary relations of a family, counting the family itself.
+     *
+     * @param family the number of the family
+     * @return the number of families the given one is not related to
+     */
+    private int complementDegree(int family) {
+        return nrFamilies - relations.degree(family);
+    }
+
     /**
      * Reads the problem input from inFilename and stores the number of the Mafia families, the
      * number of relations and the relations between the families in the attributes defined above.
-     * Also, creates the list of relations between the unconnected families.
      *
      * @throws IOException input/output exception to be thrown
      */
     @Override
     public void readProblemData() throws IOException {
-        // defines the buffered reader for the input file
-        FileReader inputFile = new FileReader(inFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
-
-        // extracts the data from first input line and stores it in the corresponding attributes
-        String firstLine = inputReader.readLine();
-        String[] dataFirstLine = firstLine.split(" ");
-        List<String> listFirstLine = Arrays.asList(dataFirstLine);
-        nrFamilies = Integer.parseInt(listFirstLine.get(0));
-        nrRelations = Integer.parseInt(listFirstLine.get(1));
-
-        // number of connections of the complementary graph of relations, calculated as the total
-        // number of edges possible in an undirected graph with "N" nodes, from which the number
-        // of relations is subtracted
-        int complementNrRelations = nrFamilies * (nrFamilies - 1) / 2 - nrRelations;
-        // biggest possible size of an extended family calculated on the base of number of families
-        sizeExtendedFamily = (int) Math.floor(Math.sqrt(2 * complementNrRelations + 0.25) + 0.5);
+        // maps the input file and scans its integers, whatever whitespace separates them
+        try (ProblemReader reader = new ProblemReader(inFilename)) {
+            // extracts the data from first input line and stores it in the corresponding
+            // attributes
+            nrFamilies = reader.nextInt();
+            nrRelations = reader.nextInt();
 
-        // initializes "N + 1" lists of relations corresponding to each family number (the list
-        // from index 0 remains unused); does the same thing for the complementary graph of
-        // relations
-        for (int i = 0; i <= nrFamilies; ++i) {
-            List<Integer> newList = new ArrayList<>();
-            relations.add(newList);
-            List<Integer> newComplementList = new ArrayList<>();
-            complementRelations.add(newComplementList);
+            // extracts the "M" pairs of families which are in relation and builds the graph of
+            // relations for the connected families
+            relations = new Graph(nrFamilies, reader.readRelations(nrRelations), nrRelations);
         }
 
-        // extracts the data from the rest of the "M" lines of relations and constructs the list
-        // of relations for the connected families
-        for (int i = 0; i < nrRelations; ++i) {
-            String lineRelation = inputReader.readLine();
-            String[] relation = lineRelation.split(" ");
-            List<String> listRelation = Arrays.asList(relation);
-            int family1 = Integer.parseInt(listRelation.get(0));
-            int family2 = Integer.parseInt(listRelation.get(1));
-            (relations.get(family1)).add(family2);
-            (relations.get(family2)).add(family1);
+        if (options.kernel) {
+            // encodes only the kernel, the forced and folded families being decided by the
+            // reduction rules
+            kernel = new VertexCoverKernel(relations);
+            relations = kernel.kernel;
+            nrFamilies = relations.nrNodes;
+            nrRelations = relations.nrEdges;
         }
 
-        //constructs the complementary adjacency lists of relations according to the unconnected
+        // number of connections of the complementary graph of relations, calculated as the
+        // total number of edges possible in an undirected graph with "N" nodes, from which the
+        // number of relations is subtracted
+        long complementNrRelations = relations.complementNrEdges();
+        // biggest possible size of an extended family calculated on the base of number of
         // families
-        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
-            for (int family2 = 1; family2 <= nrFamilies; ++family2) {
-                if (!relations.get(family1).contains(family2)) {
-                    (complementRelations.get(family1)).add(family2);
-                }
-            }
-        }
+        sizeExtendedFamily = (int) Math.floor(Math.sqrt(2 * complementNrRelations + 0.25) + 0.5);
 
         sizeOptimization(); // reduces K when possible
     }
 
     /**
-     * Reduces the current complementary problem to SAT by writing it in oracleInFilename in a
-     * format understood by the oracle.
+     * Reduces the current complementary problem to SAT by adding its clauses to the question
+     * addressed to the oracle.
      *
      * @throws IOException input/output exception to be thrown
      */
     @Override
     public void formulateOracleQuestion() throws IOException {
-        // number of total clauses used in the SAT transformation (corresponding to "F")
-        int nrClauses = sizeExtendedFamily + sizeExtendedFamily * nrFamilies * (nrFamilies - 1) / 2
-                + nrFamilies * sizeExtendedFamily * (sizeExtendedFamily - 1) / 2
-                + nrRelations * sizeExtendedFamily * (sizeExtendedFamily - 1);
-        // number of total variables used in the SAT transformation (corresponding to "V")
-        int nrVariables = nrFamilies * sizeExtendedFamily;
+        if (options.cover.equals("compact")) {
+            formulateCompactQuestion();
+            return;
+        }
+
+        // number of total clauses used in the SAT transformation (corresponding to "F"), the
+        // at-most-one constraints depending on the encoding selected in the settings
+        long nrClauses = sizeExtendedFamily
+                + sizeExtendedFamily * AtMostOne.countClauses(options.amo, nrFamilies)
+                + nrFamilies * AtMostOne.countClauses(options.amo, sizeExtendedFamily)
+                + (long) nrRelations * sizeExtendedFamily * (sizeExtendedFamily - 1);
+        // number of total variables used in the SAT transformation (corresponding to "V"); the
+        // auxiliary variables of the at-most-one constraints follow the "N * K" ones
+        long nrVariables = (long) nrFamilies * sizeExtendedFamily
+                + (long) sizeExtendedFamily * AtMostOne.countVariables(options.amo, nrFamilies)
+                + (long) nrFamilies * AtMostOne.countVariables(options.amo, sizeExtendedFamily);
+        // the exponential weights of the soft clauses only fit in 64 bits up to "K = 64", beyond
+        // which every soft clause weighs 1 (a clique of the same size being optimal either way)
+        boolean exponential = sizeExtendedFamily <= MAX_EXPONENTIAL_SIZE;
         // weight of a hard clause calculated as the sum of soft clauses + 1
-        int top = (int) Math.pow(2, sizeExtendedFamily - 2);
+        long top = exponential ? 1L << (sizeExtendedFamily - 2) : sizeExtendedFamily - 1;
 
-        // defines the buffered writer for the input oracle file
-        BufferedWriter writer = new BufferedWriter(new FileWriter(oracleInFilename));
+        // opens the question addressed to the oracle
+        ClauseSink writer = openOracleQuestion();
         // writes first line of the oracle question
-        writer.write("p wcnf " + nrVariables + " " + nrClauses + " " + top + "\n");
+        writer.header(nrVariables, nrClauses, top);
+        // generates the independent groups of clauses below on the threads of the run
+        ParallelEncoder encoder = openEncoder();
 
         // writes "K - 2" soft clauses and 2 hard clauses corresponding to the fact that each
         // element from the clique must be consisted of a family group (similar to task2)
         for (int i = 0; i < sizeExtendedFamily; ++i) {
             if (i == 0 || i == 1) {
                 // first 2 hard clauses will have the top attribute at the beginning
-                writer.write(top + " ");
+                writer.weight(top);
             } else {
                 // rest of the clauses will have an exponential weight at the beginning
-                writer.write(Math.pow(2, i - 2) + " ");
+                writer.weight(exponential ? 1L << (i - 2) : 1);
             }
             for (int j = 1; j <= nrFamilies; ++j) {
                 int varClique = nrFamilies * i + j;
-                writer.write(varClique + " ");
+                writer.add(varClique);
             }
-            writer.write("0\n");
+            writer.add(0);
         }
 
-        // writes "K * N * (N - 1) / 2" hard clauses corresponding to the fact that a node of a
-        // clique can not be represented by more than a family (similar to task2)
-        for (int i = 0; i < sizeExtendedFamily; ++i) {
-            for (int j = 1; j < nrFamilies; ++j) {
-                int varClique1 = nrFamilies * i + j;
-                varClique1 = -varClique1;
-                for (int k = j + 1; k <= nrFamilies; ++k) {
-                    int varClique2 = nrFamilies * i + k;
-                    varClique2 = -varClique2;
-                    // points out the hard close property by adding the top in front of the clause
-                    writer.write(top + " " + varClique1 + " " + varClique2 + " 0\n");
+        // writes the hard clauses corresponding to the fact that a node of a clique can not be
+        // represented by more than a family, similar to task2 ("K * N * (N - 1) / 2" clauses
+        // with the pairwise encoding)
+        // the auxiliary variables of the groups are numbered in the order of the groups, each of
+        // them getting the same amount
+        int firstAuxiliary = nrFamilies * sizeExtendedFamily + 1;
+        int nodeAuxiliaries = AtMostOne.countVariables(options.amo, nrFamilies);
+        int familyAuxiliaries = AtMostOne.countVariables(options.amo, sizeExtendedFamily);
+        encoder.encode(writer, 0, sizeExtendedFamily, (sink, from, to) -> {
+            AtMostOne atMostOne = new AtMostOne(options.amo, sink,
+                    firstAuxiliary + from * nodeAuxiliaries, top);
+            int[] varCliques = new int[nrFamilies];
+            for (int i = from; i < to; ++i) {
+                // creates the variables of a clique node and each potential family it may
+                // consist of
+                for (int j = 1; j <= nrFamilies; ++j) {
+                    varCliques[j - 1] = nrFamilies * i + j;
                 }
+                // writes down the constraint that no two of these variables can coexist
+                atMostOne.encode(varCliques, nrFamilies);
             }
-        }
+        });
 
-        // writes "N * K * (K - 1) / 2" hard clauses corresponding to the fact that a family can not
-        // represent more than a node in the clique (similar to task2)
-        for (int i = 1; i <= nrFamilies; ++i) {
-            for (int j = 0; j < sizeExtendedFamily - 1; ++j) {
-                int varCliqueFamily1 = nrFamilies * j + i;
-                varCliqueFamily1 = -varCliqueFamily1;
-                for (int k = j + 1; k < sizeExtendedFamily; ++k) {
-                    int varCliqueFamily2 = nrFamilies * k + i;
-                    varCliqueFamily2 = -varCliqueFamily2;
-                    // points out the hard close property by adding the top in front of the clause
-                    writer.write(top + " " + varCliqueFamily1 + " " + varCliqueFamily2 + " 0\n");
+        // writes the hard clauses corresponding to the fact that a family can not represent more
+        // than a node in the clique, similar to task2 ("N * K * (K - 1) / 2" clauses with the
+        // pairwise encoding)
+        encoder.encode(writer, 1, nrFamilies + 1, (sink, from, to) -> {
+            AtMostOne atMostOne = new AtMostOne(options.amo, sink, firstAuxiliary
+                    + sizeExtendedFamily * nodeAuxiliaries + (from - 1) * familyAuxiliaries,
+                    top);
+            int[] varCliqueFamilies = new int[sizeExtendedFamily];
+            for (int i = from; i < to; ++i) {
+                // creates the variables of a family and each potential clique node it may
+                // represent
+                for (int j = 0; j < sizeExtendedFamily; ++j) {
+                    varCliqueFamilies[j] = nrFamilies * j + i;
                 }
+                // writes down the constraint that no two of these variables can coexist
+                atMostOne.encode(varCliqueFamilies, sizeExtendedFamily);
             }
-        }
+        });
 
         // writes "nrRelations * K * (K - 1)" hard clauses corresponding to the fact that for every
         // two families that form a relation, they can not both be present in the clique
-        for (int i = 1; i <= nrFamilies; ++i) {
-            for (int j = 1; j <= nrFamilies; ++j) {
-                // gets the pairs of connected families
-                if (i < j && relations.get(i).contains(j)) {
-                    // creates the variable of a family from a connected pair and a potential
-                    // clique node it may represent
+        encoder.encode(writer, 1, nrFamilies + 1, (sink, from, to) -> {
+            for (int i = from; i < to; ++i) {
+                for (int index = 0; index < relations.degree(i); ++index) {
+                    // gets the pairs of connected families, once per relation
+                    int j = relations.neighbour(i, index);
+                    if (j < i) {
+                        continue;
+                    }
+                    // creates the variable of a family from a connected pair and a potential clique
+                    // node it may represent
                     for (int k = 0; k < sizeExtendedFamily; ++k) {
                         int varFamily1 = nrFamilies * k + i;
                         varFamily1 = -varFamily1;
                         for (int l = 0; l < sizeExtendedFamily; ++l) {
                             if (l != k) {
-                                // creates the variable of the other family from the connected
-                                // pair and another potential clique node it may represent
+                                // creates the variable of the other family from the connected pair
+                                // and another potential clique node it may represent
                                 int varFamily2 = nrFamilies * l + j;
                                 varFamily2 = -varFamily2;
                                 // writes down a negated relationship between the two variables,
-                                // representing the fact that they can not coexist, adding the
-                                // top attribute in order to mark the hard clause property
-                                writer.write(top + " " + varFamily1 + " " + varFamily2 + " 0\n");
+                                // representing the fact that they can not coexist, adding the top
+                                // attribute in order to mark the hard clause property
+                                sink.weight(top);
+                                sink.add(varFamily1);
+                                sink.add(varFamily2);
+                                sink.add(0);
                             }
                         }
                     }
                 }
             }
+        });
+        closeEncoder(encoder);
+
+        // closes the oracle question
+        writer.close();
+    }
+
+    /**
+     * Reduces the current problem to SAT through one variable for every family, true when the
+     * family is not arrested: a hard clause for every relation forbids both its families to be
+     * left free, while a soft unit clause of weight 1 for every family rewards leaving it free.
+     * The optimal model thus leaves free a maximum independent set of the original graph (a
+     * maximum clique of the complementary one) and arrests a minimum vertex cover, with "N"
+     * variables and "N + M" clauses whatever the size of the extended family.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void formulateCompactQuestion() throws IOException {
+        // weight of a hard clause calculated as the sum of soft clauses + 1
+        long top = nrFamilies + 1L;
+
+        // opens the question addressed to the oracle
+        ClauseSink writer = openOracleQuestion();
+        // writes first line of the oracle question
+        writer.header(nrFamilies, (long) nrFamilies + nrRelations, top);
+
+        // writes "N" soft clauses rewarding every family left free
+        for (int family = 1; family <= nrFamilies; ++family) {
+            writer.weight(1);
+            writer.add(family);
+            writer.add(0);
+        }
+
+        // writes "M" hard clauses corresponding to the fact that two related families can not
+        // both be left free, once per relation
+        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
+            for (int i = 0; i < relations.degree(family1); ++i) {
+                int family2 = relations.neighbour(family1, i);
+                if (family2 > family1) {
+                    writer.weight(top);
+                    writer.add(-family1);
+                    writer.add(-family2);
+                    writer.add(0);
+                }
+            }
         }
 
-        // closes the input oracle file
-        writer.flush();
+        // closes the oracle question
         writer.close();
     }
 
     /**
-     * Extracts the answer of the complementary problem from the one given by the oracle in
-     * oracleOutFilename by converting the state of the variables to the problem's practical
-     * application.
+     * Extracts the answer of the complementary problem from the one given by the oracle by
+     * converting the state of the variables to the problem's practical application.
      *
      * @throws IOException input/output exception to be thrown
      */
     @Override
     public void decipherOracleAnswer() throws IOException {
+        // without any model (the time limit of the oracle being reached before the first one),
+        // the extended family stays empty and every family is arrested
+        if (!oracle.isSatisfiable()) {
+            return;
+        }
         // list of stated variables related to oracle's answer to the complementary problem
-        List<Integer> oracleAnswer = new ArrayList<>();
-        // defines the buffered reader for the output oracle file
-        FileReader inputFile = new FileReader(oracleOutFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
-
-        String firstLine = inputReader.readLine();
-        String[] dataFirstLine = firstLine.split(" ");
-        List<String> first = Arrays.asList(dataFirstLine);
-        // number of variables extracted from the file
-        int nrVariables = Integer.parseInt(first.get(0));
-
-        String line = inputReader.readLine();
-        String[] dataLine = line.split(" ");
-        // list of string variables extracted from the file
-        List<String> answerVar = Arrays.asList(dataLine);
-        for (int i = 0; i < nrVariables; ++i) {
-            // adds the variables to the list of oracle answers
-            oracleAnswer.add(Integer.parseInt(answerVar.get(i)));
+        int[] oracleAnswer = oracle.getModel();
+
+        // the compact encoding has the free families as its variables
+        if (options.cover.equals("compact")) {
+            for (int family = 1; family <= nrFamilies; ++family) {
+                if (oracleAnswer[family - 1] > 0) {
+                    extendedFamily.add(family);
+                }
+            }
+            return;
         }
 
         // converts the stated variables to the complementary problem's practical answer, consisting
@@ -271,7 +365,7 @@ public class BonusTask extends Task {
         for (int i = 0; i < sizeExtendedFamily; ++i) {
             for (int j = 1; j <= nrFamilies; ++j) {
                 int varFamily = nrFamilies * i + j;
-                if (oracleAnswer.get(varFamily - 1) > 0) {
+                if (oracleAnswer[varFamily - 1] > 0) {
                     extendedFamily.add(j);
                 }
             }
@@ -292,9 +386,26 @@ public class BonusTask extends Task {
         // displays the families needed to be arrested in order to disconnect the original graph
         // of relations which are represented by the complementary set of families which have not
         // been found in the answer of the oracle to the complementary problem
-        for (int i = 1; i <= nrFamilies; ++i) {
-            if (!extendedFamily.contains(i)) {
-                writer.write(i + " ");
+        boolean[] chosen = new boolean[nrFamilies + 1];
+        for (Integer family : extendedFamily) {
+            chosen[family] = true;
+        }
+        if (kernel != null) {
+            // the arrests found in the kernel are lifted to the families of the original graph
+            boolean[] arrested = new boolean[nrFamilies + 1];
+            for (int i = 1; i <= nrFamilies; ++i) {
+                arrested[i] = !chosen[i];
+            }
+            for (Integer family : kernel.lift(arrested)) {
+                writer.write(family + " ");
+                ++nrArrests;
+            }
+        } else {
+            for (int i = 1; i <= nrFamilies; ++i) {
+                if (!chosen[i]) {
+                    writer.write(i + " ");
+                    ++nrArrests;
+                }
             }
         }
 
@@ -0,0 +1,331 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Task answering from a cache of the answers already written for the same problem, keyed by the
+ * SHA-256 hash of the name of the task, the number of families, the sorted list of relations
+ * (each relation with its smaller family first, duplicates removed) and the number of spies or
+ * the size of the extended family. The cache has two tiers:
+ * memory - the most recently used answers of the JVM, shared by the jobs of a batch or the
+ *          requests of a daemon
+ * disk   - one file per answer in the cache directory, named after the hash, the least recently
+ *          used files being removed once the directory exceeds its size
+ * A cached answer is checked against the problem before being written: a colouring has to use
+ * the available spies and to separate every two related families, an extended family has to
+ * hold distinct and pairwise related families, and the arrests have to cover every relation.
+ * A negative answer has no cheap check and is trusted. Otherwise the given task solves the
+ * problem, its answer being added to the cache.
+ */
+public class CachedTask extends Task {
+    private static final int MEMORY_ENTRIES = 4096; // answers kept in memory
+    private static final long DISK_SIZE = 64L << 20; // bytes kept in the cache directory
+
+    // answers kept in memory, in the order of their last use
+    private static final Map<String, String> MEMORY =
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MEMORY_ENTRIES;
+                }
+            };
+
+    private final String taskName; // name of the task of the problem
+    private final Supplier<Task> factory; // creates the task solving a missed problem
+
+    int nrFamilies; // number of the Mafia families (corresponding to "N")
+    int nrRelations; // number of related families (corresponding to "M")
+    int parameter = -1; // number of spies or size of the extended family (corresponding to "K")
+    Graph relations; // graph of all relations between the Mafia families
+    String key; // hash of the problem
+    String answer; // cached answer, or null if there is none
+    String source; // tier the answer came from ("memory", "disk"), or null when solved
+
+    /**
+     * @param taskName the name of the task of the problem
+     * @param factory  the constructor of the task solving a problem missing from the cache
+     */
+    public CachedTask(String taskName, Supplier<Task> factory) {
+        this.taskName = taskName;
+        this.factory = factory;
+    }
+
+    @Override
+    public void solve() throws IOException, InterruptedException {
+        measure("readProblemData", this::readProblemData);
+        measure("lookUp", this::lookUp);
+        if (answer != null) {
+            writeAnswer(answer);
+        } else {
+            Task task = factory.get();
+            task.addFiles(inFilename, oracleInFilename, oracleOutFilename, outFilename);
+            task.addOptions(options);
+            task.encoder = encoder;
+            task.metrics = metrics;
+            task.deadline = deadline;
+            task.solve();
+            // an answer given under a time limit or a deadline may be the best one found before
+            // it, so it is not kept
+            if (options.timeout == 0 && options.deadline == 0) {
+                store(new String(Files.readAllBytes(Paths.get(outFilename)),
+                        StandardCharsets.UTF_8));
+            }
+        }
+
+        if (options.stats) {
+            System.err.println("cache: " + taskName + " " + key.substring(0, 16) + " "
+                    + (source != null ? "hit in " + source : "missed"));
+        }
+    }
+
+    /**
+     * Reads the problem input from inFilename and computes its hash.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    @Override
+    public void readProblemData() throws IOException {
+        int[] ends;
+        try (ProblemReader reader = new ProblemReader(inFilename)) {
+            nrFamilies = reader.nextInt();
+            nrRelations = reader.nextInt();
+            if (taskName.equals("task1") || taskName.equals("task2")) {
+                parameter = reader.nextInt();
+            }
+            ends = reader.readRelations(nrRelations);
+        }
+        relations = new Graph(nrFamilies, ends, nrRelations);
+
+        // the relations are sorted as pairs packed in 64 bits, the smaller family first
+        long[] pairs = new long[nrRelations];
+        for (int i = 0; i < nrRelations; ++i) {
+            long family1 = Math.min(ends[2 * i], ends[2 * i + 1]);
+            long family2 = Math.max(ends[2 * i], ends[2 * i + 1]);
+            pairs[i] = family1 << 32 | family2;
+        }
+        Arrays.sort(pairs);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((taskName + " " + nrFamilies + " " + parameter + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            byte[] bytes = new byte[8];
+            for (int i = 0; i < nrRelations; ++i) {
+                if (i > 0 && pairs[i] == pairs[i - 1]) {
+                    continue;
+                }
+                for (int j = 0; j < 8; ++j) {
+                    bytes[j] = (byte) (pairs[i] >>> (56 - 8 * j));
+                }
+                digest.update(bytes);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            key = hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // every Java platform provides SHA-256
+        }
+    }
+
+    /**
+     * Looks the problem up in memory, then on disk, dropping an answer which does not pass
+     * the checks.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void lookUp() throws IOException {
+        synchronized (MEMORY) {
+            answer = MEMORY.get(key);
+        }
+        source = "memory";
+        if (answer == null && options.cache.equals("disk")) {
+            Path file = Paths.get(options.cachedir, key);
+            try {
+                answer = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                // marks the file as recently used
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                synchronized (MEMORY) {
+                    MEMORY.put(key, answer);
+                }
+                source = "disk";
+            } catch (NoSuchFileException e) {
+                answer = null;
+            }
+        }
+
+        if (answer != null && !isValid(answer)) {
+            synchronized (MEMORY) {
+                MEMORY.remove(key);
+            }
+            if (options.cache.equals("disk")) {
+                Files.deleteIfExists(Paths.get(options.cachedir, key));
+            }
+            answer = null;
+        }
+        if (answer == null) {
+            source = null;
+        }
+    }
+
+    /**
+     * Adds an answer to the cache, evicting the least recently used files once the cache
+     * directory exceeds its size.
+     *
+     * @param answer the answer written by the task
+     * @throws IOException input/output exception to be thrown
+     */
+    private void store(String answer) throws IOException {
+        synchronized (MEMORY) {
+            MEMORY.put(key, answer);
+        }
+        if (!options.cache.equals("disk")) {
+            return;
+        }
+
+        // writes a temporary file first, so a concurrent reader never sees a partial answer
+        Path directory = Paths.get(options.cachedir);
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        Files.write(temporary, answer.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listed = Files.list(directory)) {
+            listed.filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                    .forEach(files::add);
+        }
+        long size = 0;
+        Map<Path, Long> modified = new LinkedHashMap<>();
+        for (Path file : files) {
+            try {
+                size += Files.size(file);
+                modified.put(file, Files.getLastModifiedTime(file).toMillis());
+            } catch (NoSuchFileException e) {
+                // evicted meanwhile by another job
+            }
+        }
+        files.removeIf(file -> !modified.containsKey(file));
+        files.sort(Comparator.comparingLong(modified::get));
+        for (int i = 0; size > DISK_SIZE && i < files.size(); ++i) {
+            try {
+                size -= Files.size(files.get(i));
+                Files.deleteIfExists(files.get(i));
+            } catch (NoSuchFileException e) {
+                // evicted meanwhile by another job
+            }
+        }
+    }
+
+    /**
+     * Checks a cached answer against the problem.
+     *
+     * @param answer the cached answer
+     * @return whether the answer may be trusted
+     */
+    private boolean isValid(String answer) {
+        String trimmed = answer.trim();
+        String[] tokens = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+        int first = taskName.equals("task1") || taskName.equals("task2") ? 1 : 0;
+        if (first == 1 && (tokens.length == 0 || !tokens[0].equals("True"))) {
+            return tokens.length == 1 && tokens[0].equals("False");
+        }
+        int[] numbers = new int[tokens.length - first];
+        try {
+            for (int i = 0; i < numbers.length; ++i) {
+                numbers[i] = Integer.parseInt(tokens[i + first]);
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        switch (taskName) {
+            case "task1":
+                // a spy for every family, two related families never sharing it
+                if (numbers.length != nrFamilies) {
+                    return false;
+                }
+                for (int family = 1; family <= nrFamilies; ++family) {
+                    int spy = numbers[family - 1];
+                    if (spy < 1 || spy > parameter) {
+                        return false;
+                    }
+                    for (int i = 0; i < relations.degree(family); ++i) {
+                        if (numbers[relations.neighbour(family, i) - 1] == spy) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            case "task2":
+                // "K" distinct families, every two of them being related
+                if (numbers.length != parameter) {
+                    return false;
+                }
+                for (int i = 0; i < numbers.length; ++i) {
+                    if (numbers[i] < 1 || numbers[i] > nrFamilies) {
+                        return false;
+                    }
+                    for (int j = 0; j < i; ++j) {
+                        if (numbers[i] == numbers[j] || !relations.isEdge(numbers[i], numbers[j])) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            default:
+                // every relation has at least one of its families arrested
+                boolean[] arrested = new boolean[nrFamilies + 1];
+                for (int family : numbers) {
+                    if (family < 1 || family > nrFamilies) {
+                        return false;
+                    }
+                    arrested[family] = true;
+                }
+                for (int family = 1; family <= nrFamilies; ++family) {
+                    for (int i = 0; !arrested[family] && i < relations.degree(family); ++i) {
+                        if (!arrested[relations.neighbour(family, i)]) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Writes a cached answer to the outFilename.
+     *
+     * @param answer the answer to be written
+     * @throws IOException input/output exception to be thrown
+     */
+    private void writeAnswer(String answer) throws IOException {
+        Files.write(Paths.get(outFilename), answer.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeAnswer() throws IOException {
+        // the answer is written by the solving task, or copied from the cache
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright 2020
+
+import java.util.Arrays;
+
+/**
+ * Oracle backend answering the questions inside the JVM through the CDCL solver, without
+ * spawning a process or writing any file.
+ */
+public class CdclOracle implements Oracle, ClauseSink {
+    private CdclSolver solver; // solver receiving the clauses of the current question
+    private int[] clause = new int[16]; // literals of the clause being added
+    private int clauseSize;
+    private boolean satisfiable; // boolean answer of the solver
+    private int[] model = new int[0]; // state of the variables given by the solver
+
+    @Override
+    public ClauseSink question() {
+        solver = new CdclSolver();
+        clauseSize = 0;
+        return this;
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses) {
+        solver.ensureVariables(Math.toIntExact(nrVariables));
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses, long top) {
+        throw new UnsupportedOperationException(
+                "The CDCL oracle can not answer weighted questions");
+    }
+
+    @Override
+    public void weight(long weight) {
+        throw new UnsupportedOperationException(
+                "The CDCL oracle can not answer weighted questions");
+    }
+
+    @Override
+    public void add(int literal) {
+        if (literal == 0) {
+            solver.addClause(clause, clauseSize);
+            clauseSize = 0;
+        } else {
+            if (clauseSize == clause.length) {
+                clause = Arrays.copyOf(clause, 2 * clauseSize);
+            }
+            clause[clauseSize++] = literal;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (clauseSize != 0) {
+            throw new IllegalStateException("Unterminated clause in oracle question");
+        }
+    }
+
+    @Override
+    public void ask() {
+        ask(new int[0]);
+    }
+
+    /**
+     * Asks for an answer to the question under the given assumptions. The solver is kept after
+     * answering, so the question may be extended with further clauses and asked again, the
+     * clauses learnt so far being reused.
+     *
+     * @param assumptions the literals assumed true for this answer only
+     */
+    public void ask(int[] assumptions) {
+        satisfiable = solver.solve(assumptions);
+        model = satisfiable ? solver.getModel() : new int[0];
+    }
+
+    /**
+     * @return the assumptions of the last unsatisfiable answer which can not hold together
+     */
+    public int[] getCore() {
+        return solver.getCore();
+    }
+
+    /**
+     * Limits the time of the following answers, an answer given up being unsatisfiable.
+     *
+     * @param deadline the System.nanoTime() value after which the solver gives up
+     */
+    @Override
+    public void setDeadline(long deadline) {
+        solver.deadline = deadline;
+    }
+
+    /**
+     * @return whether the last answer was given up because of the deadline
+     */
+    @Override
+    public boolean timedOut() {
+        return solver.timedOut;
+    }
+
+    @Override
+    public boolean isSatisfiable() {
+        return satisfiable;
+    }
+
+    @Override
+    public int[] getModel() {
+        return model;
+    }
+}
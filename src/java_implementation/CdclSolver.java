@@ -0,0 +1,767 @@
+// Copyright 2020
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Conflict-driven clause learning SAT solver running inside the JVM. The implementation follows
+ * the classic MiniSat design: two watched literals per clause for unit propagation, first-UIP
+ * conflict analysis with clause minimisation, VSIDS variable activities kept in a binary heap,
+ * phase saving, Luby restarts and periodic reduction of the learnt clause database.
+ * The variables are given in the DIMACS convention (starting from 1); internally, variable
+ * "v" (starting from 0) has the positive literal "2 * v" and the negative literal "2 * v + 1".
+ */
+public class CdclSolver {
+    private static final byte TRUE = 1; // value of a satisfied literal
+    private static final byte FALSE = -1; // value of a falsified literal
+    private static final byte UNDEFINED = 0; // value of an unassigned literal
+    private static final int RESTART_BASE = 100; // conflicts of the first Luby restart interval
+    private static final double VARIABLE_DECAY = 0.95; // decay factor of variable activities
+    private static final double CLAUSE_DECAY = 0.999; // decay factor of learnt clause activities
+
+    /**
+     * Clause of the solver; the first two literals are the watched ones and, for a clause that
+     * is the reason of an assignment, the first literal is the implied one.
+     */
+    private static final class Clause {
+        final int[] literals;
+        final boolean learnt;
+        double activity;
+        int lbd; // number of distinct decision levels of the literals when the clause was learnt
+
+        Clause(int[] literals, boolean learnt) {
+            this.literals = literals;
+            this.learnt = learnt;
+        }
+    }
+
+    /**
+     * Growable list of the clauses watching a literal.
+     */
+    private static final class WatchList {
+        Clause[] clauses = new Clause[4];
+        int size;
+
+        void add(Clause clause) {
+            if (size == clauses.length) {
+                clauses = Arrays.copyOf(clauses, 2 * size);
+            }
+            clauses[size++] = clause;
+        }
+    }
+
+    private int nrVariables; // number of variables known by the solver
+    private boolean ok = true; // false once the clauses are known to be unsatisfiable
+    private byte[] values = new byte[0]; // value of every literal
+    private int[] levels = new int[0]; // decision level of every assigned variable
+    private Clause[] reasons = new Clause[0]; // clause implying every propagated variable
+    private boolean[] polarities = new boolean[0]; // last value of every variable (phase saving)
+    private boolean[] seen = new boolean[0]; // marks used during conflict analysis
+    private double[] activities = new double[0]; // VSIDS activity of every variable
+    private WatchList[] watches = new WatchList[0]; // clauses watching every literal
+    private int[] trail = new int[0]; // assigned literals, in chronological order
+    private int trailSize;
+    private int[] trailLimits = new int[0]; // trail position at which every decision level starts
+    private int decisionLevel;
+    private int propagationHead; // first trail position whose consequences were not propagated
+
+    // binary max-heap of the unassigned variables, ordered by their activities
+    private int[] heap = new int[0];
+    private int heapSize;
+    private int[] heapIndices = new int[0]; // position of every variable in the heap, or -1
+
+    private final List<Clause> clauses = new ArrayList<>(); // problem clauses
+    private final List<Clause> learnts = new ArrayList<>(); // learnt clauses
+    private double variableIncrement = 1;
+    private double clauseIncrement = 1;
+    private double maxLearnts; // size of the learnt clause database triggering its reduction
+
+    private int[] learntBuffer = new int[16]; // literals of the clause being learnt
+    private int learntSize;
+    private int[] levelStamps = new int[1]; // per decision level marks used for computing LBD
+    private int stamp;
+    private int[] model = new int[0]; // interpretation found by the last successful search
+    private int[] assumptions = new int[0]; // literals assumed true by the current search
+    private int[] core = new int[0]; // assumptions refuted together by the last failed search
+
+    long conflicts; // number of conflicts met since the creation of the solver
+    long decisions; // number of decisions taken since the creation of the solver
+    long propagations; // number of propagated literals since the creation of the solver
+    long deadline = Long.MAX_VALUE; // System.nanoTime() value after which a search gives up
+    // whether the last search gave up because of the deadline or an interruption of its thread
+    boolean timedOut;
+
+    /**
+     * Makes sure the solver knows at least the given number of variables.
+     *
+     * @param count the number of variables needed
+     */
+    public void ensureVariables(int count) {
+        if (count <= nrVariables) {
+            return;
+        }
+        // grows the per variable and per literal arrays geometrically
+        if (count > levels.length) {
+            int capacity = Math.max(count, 2 * levels.length);
+            values = Arrays.copyOf(values, 2 * capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+            polarities = Arrays.copyOf(polarities, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            activities = Arrays.copyOf(activities, capacity);
+            watches = Arrays.copyOf(watches, 2 * capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            trailLimits = Arrays.copyOf(trailLimits, Math.max(capacity + 1, trailLimits.length));
+            heap = Arrays.copyOf(heap, capacity);
+            heapIndices = Arrays.copyOf(heapIndices, capacity);
+            levelStamps = Arrays.copyOf(levelStamps, Math.max(capacity + 1, levelStamps.length));
+        }
+        // registers the new variables as unassigned decision candidates
+        for (int variable = nrVariables; variable < count; ++variable) {
+            watches[2 * variable] = new WatchList();
+            watches[2 * variable + 1] = new WatchList();
+            heapIndices[variable] = -1;
+            heapInsert(variable);
+        }
+        nrVariables = count;
+    }
+
+    /**
+     * @return the number of variables known by the solver
+     */
+    public int getNrVariables() {
+        return nrVariables;
+    }
+
+    /**
+     * Adds a clause given in the DIMACS convention (without the terminating 0). The clause is
+     * simplified with respect to the assignments already fixed by the previous clauses.
+     *
+     * @param dimacsLiterals the literals of the clause
+     * @param size           the number of literals to be taken from the array
+     * @return false if the clauses are now known to be unsatisfiable
+     */
+    public boolean addClause(int[] dimacsLiterals, int size) {
+        if (!ok) {
+            return false;
+        }
+        cancelUntil(0);
+
+        // converts the literals, sorting them so duplicates and complements become neighbours
+        int[] literals = new int[size];
+        for (int i = 0; i < size; ++i) {
+            int variable = Math.abs(dimacsLiterals[i]) - 1;
+            ensureVariables(variable + 1);
+            literals[i] = 2 * variable + (dimacsLiterals[i] < 0 ? 1 : 0);
+        }
+        Arrays.sort(literals);
+
+        // drops duplicates and literals false at the top level, discarding satisfied clauses
+        int kept = 0;
+        for (int i = 0; i < size; ++i) {
+            int literal = literals[i];
+            if (values[literal] == TRUE || (i > 0 && literals[i - 1] == (literal ^ 1))) {
+                return true;
+            }
+            if (values[literal] != FALSE && (kept == 0 || literals[kept - 1] != literal)) {
+                literals[kept++] = literal;
+            }
+        }
+
+        if (kept == 0) {
+            ok = false;
+        } else if (kept == 1) {
+            enqueue(literals[0], null);
+            ok = propagate() == null;
+        } else {
+            Clause clause = new Clause(Arrays.copyOf(literals, kept), false);
+            clauses.add(clause);
+            attach(clause);
+        }
+        return ok;
+    }
+
+    /**
+     * Searches for an interpretation satisfying all the clauses added so far.
+     *
+     * @return true if the clauses are satisfiable, in which case the model is available
+     */
+    public boolean solve() {
+        return solve(new int[0]);
+    }
+
+    /**
+     * Searches for an interpretation satisfying all the clauses added so far in which the given
+     * literals are true. The assumptions only hold for this search: the clauses learnt while
+     * refuting them remain valid without them, so the solver may be reused for further clauses
+     * and searches.
+     *
+     * @param dimacsAssumptions the literals assumed true, in the DIMACS convention
+     * @return true if the clauses are satisfiable under the assumptions, in which case the model
+     *         is available
+     */
+    public boolean solve(int[] dimacsAssumptions) {
+        core = new int[0];
+        timedOut = false;
+        if (!ok) {
+            return false;
+        }
+        cancelUntil(0);
+
+        // converts the assumptions, every one of them being decided on its own level
+        assumptions = new int[dimacsAssumptions.length];
+        for (int i = 0; i < assumptions.length; ++i) {
+            int variable = Math.abs(dimacsAssumptions[i]) - 1;
+            ensureVariables(variable + 1);
+            assumptions[i] = 2 * variable + (dimacsAssumptions[i] < 0 ? 1 : 0);
+        }
+        maxLearnts = Math.max(clauses.size() / 3.0, 2000);
+
+        boolean satisfiable;
+        for (int restart = 0; ; ++restart) {
+            // runs the search until it reaches a verdict or the current restart limit
+            byte status = search(luby(restart) * RESTART_BASE);
+            if (status != UNDEFINED || timedOut) {
+                satisfiable = status == TRUE;
+                break;
+            }
+            maxLearnts *= 1.05;
+        }
+
+        cancelUntil(0);
+        return satisfiable;
+    }
+
+    /**
+     * Returns the interpretation found by the last successful call of solve(): the element at
+     * index "i" is "i + 1" if the variable is true and "-(i + 1)" otherwise.
+     *
+     * @return the state of the variables
+     */
+    public int[] getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the assumptions of the last unsatisfiable search which can not hold together, in
+     * the DIMACS convention; the core is empty if the clauses are unsatisfiable by themselves.
+     *
+     * @return the literals of the core
+     */
+    public int[] getCore() {
+        return core;
+    }
+
+    /**
+     * Runs the conflict-driven search until a verdict is reached or until the given number of
+     * conflicts has been met.
+     *
+     * @param conflictLimit the number of conflicts after which the search restarts
+     * @return TRUE if a model was found, FALSE if the clauses are unsatisfiable and UNDEFINED
+     *         if the search has to be restarted
+     */
+    private byte search(long conflictLimit) {
+        long conflictCount = 0;
+
+        while (true) {
+            Clause conflict = propagate();
+
+            if (conflict != null) {
+                ++conflicts;
+                ++conflictCount;
+                if (decisionLevel == 0) {
+                    ok = false;
+                    return FALSE;
+                }
+
+                // learns the asserting clause and jumps back to the level where it propagates
+                int backtrackLevel = analyze(conflict);
+                cancelUntil(backtrackLevel);
+                int[] literals = Arrays.copyOf(learntBuffer, learntSize);
+                if (literals.length == 1) {
+                    enqueue(literals[0], null);
+                } else {
+                    Clause clause = new Clause(literals, true);
+                    clause.lbd = computeLbd(literals);
+                    learnts.add(clause);
+                    attach(clause);
+                    bumpClause(clause);
+                    enqueue(literals[0], clause);
+                }
+                variableIncrement /= VARIABLE_DECAY;
+                clauseIncrement /= CLAUSE_DECAY;
+                // the clock and the interruption of the thread are only checked every few
+                // conflicts
+                if ((conflicts & 255) == 0 && stopped()) {
+                    cancelUntil(0);
+                    return UNDEFINED;
+                }
+            } else {
+                if (conflictCount >= conflictLimit) {
+                    cancelUntil(0);
+                    return UNDEFINED;
+                }
+                if (learnts.size() - trailSize >= maxLearnts) {
+                    reduceLearnts();
+                }
+
+                // decides the assumptions first, an assumption already falsified by the
+                // previous ones making the search fail
+                int next = -1;
+                while (decisionLevel < assumptions.length) {
+                    int assumption = assumptions[decisionLevel];
+                    if (values[assumption] == TRUE) {
+                        newDecisionLevel();
+                    } else if (values[assumption] == FALSE) {
+                        analyzeFinal(assumption);
+                        return FALSE;
+                    } else {
+                        next = assumption;
+                        break;
+                    }
+                }
+                if (next < 0) {
+                    next = pickBranchLiteral();
+                }
+                if (next < 0) {
+                    // every variable is assigned without conflict, so the model is stored
+                    model = new int[nrVariables];
+                    for (int variable = 0; variable < nrVariables; ++variable) {
+                        model[variable] = values[2 * variable] == TRUE ? variable + 1
+                                : -(variable + 1);
+                    }
+                    return TRUE;
+                }
+                ++decisions;
+                // a long run of decisions without conflicts (such as thousands of assumptions,
+                // each of them propagated) is bounded by the deadline too
+                if ((decisions & 255) == 0 && stopped()) {
+                    cancelUntil(0);
+                    return UNDEFINED;
+                }
+                newDecisionLevel();
+                enqueue(next, null);
+            }
+        }
+    }
+
+    /**
+     * Gives up the search once the deadline has passed or the thread has been interrupted.
+     *
+     * @return whether the search has to stop
+     */
+    private boolean stopped() {
+        timedOut = System.nanoTime() > deadline || Thread.currentThread().isInterrupted();
+        return timedOut;
+    }
+
+    /**
+     * Opens a new decision level, starting at the current end of the trail. Satisfied assumptions
+     * open empty levels, so there may be more levels than variables.
+     */
+    private void newDecisionLevel() {
+        if (decisionLevel + 1 >= trailLimits.length) {
+            trailLimits = Arrays.copyOf(trailLimits, 2 * (decisionLevel + 1));
+            levelStamps = Arrays.copyOf(levelStamps, 2 * (decisionLevel + 1));
+        }
+        trailLimits[decisionLevel++] = trailSize;
+    }
+
+    /**
+     * Propagates all the enqueued assignments through the watched literals.
+     *
+     * @return the conflicting clause, or null if no conflict was found
+     */
+    private Clause propagate() {
+        Clause conflict = null;
+
+        while (propagationHead < trailSize) {
+            int falseLiteral = trail[propagationHead++] ^ 1;
+            WatchList watchList = watches[falseLiteral];
+            Clause[] watching = watchList.clauses;
+            int size = watchList.size;
+            int i = 0;
+            int j = 0;
+            ++propagations;
+
+            while (i < size) {
+                Clause clause = watching[i++];
+                int[] literals = clause.literals;
+                // keeps the false literal in the second position
+                if (literals[0] == falseLiteral) {
+                    literals[0] = literals[1];
+                    literals[1] = falseLiteral;
+                }
+                int first = literals[0];
+                if (values[first] == TRUE) {
+                    watching[j++] = clause;
+                    continue;
+                }
+
+                // looks for a new literal to be watched instead of the false one
+                boolean moved = false;
+                for (int k = 2; k < literals.length; ++k) {
+                    if (values[literals[k]] != FALSE) {
+                        literals[1] = literals[k];
+                        literals[k] = falseLiteral;
+                        watches[literals[1]].add(clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+
+                // the clause is unit or conflicting, so it keeps watching the false literal
+                watching[j++] = clause;
+                if (values[first] == FALSE) {
+                    conflict = clause;
+                    propagationHead = trailSize;
+                    while (i < size) {
+                        watching[j++] = watching[i++];
+                    }
+                } else {
+                    enqueue(first, clause);
+                }
+            }
+            watchList.size = j;
+
+            if (conflict != null) {
+                break;
+            }
+        }
+
+        return conflict;
+    }
+
+    /**
+     * Analyses a conflict, leaving the learnt first-UIP clause in learntBuffer with its
+     * asserting literal first and a literal of the backtracking level second.
+     *
+     * @param conflict the conflicting clause
+     * @return the decision level the search has to jump back to
+     */
+    private int analyze(Clause conflict) {
+        learntSize = 1; // the first position is reserved for the asserting literal
+        int pathCount = 0;
+        int literal = -1;
+        int index = trailSize - 1;
+        Clause clause = conflict;
+
+        do {
+            if (clause.learnt) {
+                bumpClause(clause);
+            }
+            int[] literals = clause.literals;
+            for (int j = literal < 0 ? 0 : 1; j < literals.length; ++j) {
+                int other = literals[j];
+                int variable = other >> 1;
+                if (!seen[variable] && levels[variable] > 0) {
+                    seen[variable] = true;
+                    bumpVariable(variable);
+                    if (levels[variable] >= decisionLevel) {
+                        ++pathCount;
+                    } else {
+                        pushLearnt(other);
+                    }
+                }
+            }
+            // selects the next marked literal of the current level, going backwards on the trail
+            while (!seen[trail[index--] >> 1]) {
+                // skips the literals not involved in the conflict
+            }
+            literal = trail[index + 1];
+            clause = reasons[literal >> 1];
+            seen[literal >> 1] = false;
+            --pathCount;
+        } while (pathCount > 0);
+        learntBuffer[0] = literal ^ 1;
+
+        // removes the literals implied by other literals of the clause (local minimisation)
+        int[] marked = Arrays.copyOf(learntBuffer, learntSize);
+        int kept = 1;
+        for (int i = 1; i < learntSize; ++i) {
+            Clause reason = reasons[learntBuffer[i] >> 1];
+            boolean redundant = reason != null;
+            for (int k = 1; redundant && k < reason.literals.length; ++k) {
+                int variable = reason.literals[k] >> 1;
+                redundant = seen[variable] || levels[variable] == 0;
+            }
+            if (!redundant) {
+                learntBuffer[kept++] = learntBuffer[i];
+            }
+        }
+        learntSize = kept;
+        for (int i = 1; i < marked.length; ++i) {
+            seen[marked[i] >> 1] = false;
+        }
+
+        // moves a literal of the highest remaining level in the second position
+        if (learntSize == 1) {
+            return 0;
+        }
+        int maxIndex = 1;
+        for (int i = 2; i < learntSize; ++i) {
+            if (levels[learntBuffer[i] >> 1] > levels[learntBuffer[maxIndex] >> 1]) {
+                maxIndex = i;
+            }
+        }
+        int swap = learntBuffer[1];
+        learntBuffer[1] = learntBuffer[maxIndex];
+        learntBuffer[maxIndex] = swap;
+        return levels[learntBuffer[1] >> 1];
+    }
+
+    /**
+     * Collects the assumptions implying the negation of a falsified assumption, by following
+     * the reasons of the trail backwards from it; every decision met is an assumption, all of
+     * them being decided before any other variable.
+     *
+     * @param assumption the assumption found false
+     */
+    private void analyzeFinal(int assumption) {
+        List<Integer> found = new ArrayList<>();
+        found.add(assumption);
+        if (decisionLevel > 0) {
+            seen[assumption >> 1] = true;
+            for (int i = trailSize - 1; i >= trailLimits[0]; --i) {
+                int variable = trail[i] >> 1;
+                if (!seen[variable]) {
+                    continue;
+                }
+                Clause reason = reasons[variable];
+                if (reason == null) {
+                    found.add(trail[i]);
+                } else {
+                    for (int k = 1; k < reason.literals.length; ++k) {
+                        if (levels[reason.literals[k] >> 1] > 0) {
+                            seen[reason.literals[k] >> 1] = true;
+                        }
+                    }
+                }
+                seen[variable] = false;
+            }
+            seen[assumption >> 1] = false;
+        }
+
+        core = new int[found.size()];
+        for (int i = 0; i < core.length; ++i) {
+            int literal = found.get(i);
+            core[i] = (literal & 1) == 0 ? (literal >> 1) + 1 : -((literal >> 1) + 1);
+        }
+    }
+
+    /**
+     * Halves the learnt clause database, keeping the binary clauses, the clauses with a small
+     * LBD and those currently used as reasons.
+     */
+    private void reduceLearnts() {
+        // sorts the learnt clauses so the least useful ones come first
+        learnts.sort((c1, c2) -> c1.lbd != c2.lbd ? Integer.compare(c2.lbd, c1.lbd)
+                : Double.compare(c1.activity, c2.activity));
+
+        List<Clause> kept = new ArrayList<>();
+        int removable = learnts.size() / 2;
+        boolean removed = false;
+        for (Clause clause : learnts) {
+            if (removable > 0 && clause.literals.length > 2 && clause.lbd > 2
+                    && !isLocked(clause)) {
+                --removable;
+                removed = true;
+            } else {
+                kept.add(clause);
+            }
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+
+        // rebuilds the watch lists without the removed clauses
+        if (removed) {
+            for (int literal = 0; literal < 2 * nrVariables; ++literal) {
+                watches[literal].size = 0;
+            }
+            for (Clause clause : clauses) {
+                attach(clause);
+            }
+            for (Clause clause : learnts) {
+                attach(clause);
+            }
+        }
+    }
+
+    private boolean isLocked(Clause clause) {
+        int first = clause.literals[0];
+        return values[first] == TRUE && reasons[first >> 1] == clause;
+    }
+
+    private void attach(Clause clause) {
+        watches[clause.literals[0]].add(clause);
+        watches[clause.literals[1]].add(clause);
+    }
+
+    private void enqueue(int literal, Clause reason) {
+        int variable = literal >> 1;
+        values[literal] = TRUE;
+        values[literal ^ 1] = FALSE;
+        levels[variable] = decisionLevel;
+        reasons[variable] = reason;
+        trail[trailSize++] = literal;
+    }
+
+    /**
+     * Undoes all the assignments made above the given decision level.
+     *
+     * @param level the decision level to return to
+     */
+    private void cancelUntil(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= trailLimits[level]; --i) {
+            int literal = trail[i];
+            int variable = literal >> 1;
+            values[literal] = UNDEFINED;
+            values[literal ^ 1] = UNDEFINED;
+            reasons[variable] = null;
+            polarities[variable] = (literal & 1) == 0;
+            if (heapIndices[variable] < 0) {
+                heapInsert(variable);
+            }
+        }
+        trailSize = trailLimits[level];
+        propagationHead = trailSize;
+        decisionLevel = level;
+    }
+
+    /**
+     * @return the literal of the most active unassigned variable, with its saved phase, or -1
+     *         if all the variables are assigned
+     */
+    private int pickBranchLiteral() {
+        while (heapSize > 0) {
+            int variable = heapRemoveMax();
+            if (values[2 * variable] == UNDEFINED) {
+                return 2 * variable + (polarities[variable] ? 0 : 1);
+            }
+        }
+        return -1;
+    }
+
+    private void pushLearnt(int literal) {
+        if (learntSize == learntBuffer.length) {
+            learntBuffer = Arrays.copyOf(learntBuffer, 2 * learntSize);
+        }
+        learntBuffer[learntSize++] = literal;
+    }
+
+    private int computeLbd(int[] literals) {
+        ++stamp;
+        int lbd = 0;
+        for (int literal : literals) {
+            int level = levels[literal >> 1];
+            if (levelStamps[level] != stamp) {
+                levelStamps[level] = stamp;
+                ++lbd;
+            }
+        }
+        return lbd;
+    }
+
+    private void bumpVariable(int variable) {
+        activities[variable] += variableIncrement;
+        if (activities[variable] > 1e100) {
+            // rescales all the activities to avoid overflow
+            for (int i = 0; i < nrVariables; ++i) {
+                activities[i] *= 1e-100;
+            }
+            variableIncrement *= 1e-100;
+        }
+        if (heapIndices[variable] >= 0) {
+            heapUp(heapIndices[variable]);
+        }
+    }
+
+    private void bumpClause(Clause clause) {
+        clause.activity += clauseIncrement;
+        if (clause.activity > 1e20) {
+            for (Clause learnt : learnts) {
+                learnt.activity *= 1e-20;
+            }
+            clauseIncrement *= 1e-20;
+        }
+    }
+
+    /**
+     * Computes the elements of the Luby sequence (1, 1, 2, 1, 1, 2, 4, 1, ...).
+     *
+     * @param index the index of the element, starting from 0
+     * @return the element of the sequence
+     */
+    static long luby(int index) {
+        int size = 1;
+        int sequence = 0;
+        while (size < index + 1) {
+            ++sequence;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != index) {
+            size = (size - 1) >> 1;
+            --sequence;
+            index = index % size;
+        }
+        return 1L << sequence;
+    }
+
+    private void heapInsert(int variable) {
+        heapIndices[variable] = heapSize;
+        heap[heapSize++] = variable;
+        heapUp(heapSize - 1);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndices[top] = -1;
+        --heapSize;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndices[heap[0]] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+
+    private void heapUp(int position) {
+        int variable = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >> 1;
+            if (activities[heap[parent]] >= activities[variable]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            heapIndices[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = variable;
+        heapIndices[variable] = position;
+    }
+
+    private void heapDown(int position) {
+        int variable = heap[position];
+        while (2 * position + 1 < heapSize) {
+            int child = 2 * position + 1;
+            if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) {
+                ++child;
+            }
+            if (activities[heap[child]] <= activities[variable]) {
+                break;
+            }
+            heap[position] = heap[child];
+            heapIndices[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = variable;
+        heapIndices[variable] = position;
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright 2020
+
+import java.io.IOException;
+
+/**
+ * Destination of the clauses formulated for the oracle. The literals are given one by one in the
+ * DIMACS convention (a positive number for a variable, a negative one for its negation), a 0
+ * marking the end of each clause, so that no clause has to be materialised by the encoders.
+ */
+public interface ClauseSink {
+    /**
+     * Starts a question in the CNF format.
+     *
+     * @param nrVariables the number of variables of the formula
+     * @param nrClauses   the number of clauses of the formula
+     * @throws IOException input/output exception to be thrown
+     */
+    void header(long nrVariables, long nrClauses) throws IOException;
+
+    /**
+     * Starts a question in the Weighted Partial Max-SAT format.
+     *
+     * @param nrVariables the number of variables of the formula
+     * @param nrClauses   the number of clauses of the formula
+     * @param top         the weight marking a hard clause
+     * @throws IOException input/output exception to be thrown
+     */
+    void header(long nrVariables, long nrClauses, long top) throws IOException;
+
+    /**
+     * Sets the weight of the next clause of a weighted question.
+     *
+     * @param weight the weight of the clause
+     * @throws IOException input/output exception to be thrown
+     */
+    void weight(long weight) throws IOException;
+
+    /**
+     * Adds a literal to the current clause, or ends the clause if the literal is 0.
+     *
+     * @param literal the literal to be added
+     * @throws IOException input/output exception to be thrown
+     */
+    void add(int literal) throws IOException;
+
+    /**
+     * Ends the question once all the clauses have been added.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    void close() throws IOException;
+}
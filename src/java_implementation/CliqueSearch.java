@@ -0,0 +1,81 @@
+// Copyright 2020
+
+import java.io.IOException;
+
+/**
+ * Searches for the biggest size of a clique by asking whether a clique of a given size exists,
+ * between a lower bound (a size known to be reachable) and an upper bound (a size known not to
+ * be exceeded). The order of the questions is given by one of the following strategies:
+ * descending - asks the sizes from the upper bound downwards, until the first positive answer
+ * ascending  - asks the sizes above the lower bound upwards, until the first negative answer
+ * binary     - halves the interval of the sizes not decided yet with every question
+ * A positive answer may reveal a clique bigger than the asked size, which then raises the lower
+ * bound, while a negative answer lowers the upper bound below the asked size. A question given
+ * up (at the deadline of the run) stops the search, the gap between the bounds staying open.
+ */
+public class CliqueSearch {
+    /**
+     * Question asked by the search about a size of the clique.
+     */
+    interface Question {
+        /**
+         * @param size the size of the searched clique
+         * @return the size of the clique found, at least the given one, 0 if there is none or -1
+         *         if the question was given up
+         * @throws IOException          input/output exception to be thrown
+         * @throws InterruptedException interruption exception to be thrown
+         */
+        int ask(int size) throws IOException, InterruptedException;
+    }
+
+    private final String strategy; // name of the selected strategy
+    int lowerBound; // biggest size known to be reachable
+    int upperBound; // biggest size not refuted yet
+    int nrQuestions; // number of questions asked so far
+
+    /**
+     * @param strategy   the name of the strategy ("descending", "ascending" or "binary")
+     * @param lowerBound the biggest size known to be reachable
+     * @param upperBound the size the clique can not exceed
+     */
+    public CliqueSearch(String strategy, int lowerBound, int upperBound) {
+        this.strategy = strategy;
+        this.lowerBound = lowerBound;
+        this.upperBound = Math.max(lowerBound, upperBound);
+    }
+
+    /**
+     * Asks the questions needed for closing the gap between the two bounds.
+     *
+     * @param question the question answering whether a clique of a given size exists
+     * @return the biggest size of a clique, or the biggest one found if a question was given up
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    public int search(Question question) throws IOException, InterruptedException {
+        while (lowerBound < upperBound) {
+            int size;
+            switch (strategy) {
+                case "ascending":
+                    size = lowerBound + 1; break;
+                case "binary":
+                    // rounds upwards, so the asked size is always above the lower bound
+                    size = lowerBound + (upperBound - lowerBound + 1) / 2; break;
+                default:
+                    size = upperBound;
+            }
+
+            ++nrQuestions;
+            int found = question.ask(size);
+            if (found < 0) {
+                break;
+            }
+            if (found > 0) {
+                lowerBound = Math.max(found, size);
+            } else {
+                upperBound = size - 1;
+            }
+        }
+        return lowerBound;
+    }
+}
@@ -0,0 +1,428 @@
+// Copyright 2020
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Task splitting the graph of relations into its connected components, found through a
+ * union-find pass over the list of relations, and solving every component as a separate
+ * instance of the given task:
+ * task1 - the families can be watched by the spies if every component can, the spies of the
+ *         components being independent of each other, so the first component found to have
+ *         no spies answers the problem and the remaining ones are cancelled
+ * task2 - an extended family lies inside a single component, so the first component found to
+ *         have one answers the problem and the remaining ones are cancelled
+ * task3 - the arrests of the components are all needed, and together they are minimal
+ * bonus - same as task3
+ * The components are solved on a pool of workers, the biggest ones being scheduled first, each
+ * of them with its own input, oracle and output files, and their answers are taken as they
+ * complete. The components whose answer is obvious (such as single families, single relations
+ * or components with fewer families than spies) are answered without any oracle call. A
+ * connected graph is handed to the task as it is.
+ */
+public class ComponentTask extends Task {
+    private final String taskName; // name of the task solved for every component
+    private final Supplier<Task> factory; // creates the task solving a component
+
+    int nrFamilies; // number of the Mafia families (corresponding to "N")
+    int nrRelations; // number of related families (corresponding to "M")
+    int parameter; // number of spies or size of the extended family (corresponding to "K")
+    List<Component> components = new ArrayList<>(); // components, from the biggest one
+    int nrObvious; // number of components answered without the oracle
+
+    boolean problemAnswer; // boolean answer of task1 and task2
+    int[] assignedSpies; // spy assigned to every family by task1
+    List<Integer> families = new ArrayList<>(); // extended family of task2 or arrests
+
+    /**
+     * Connected component of the graph of relations, with its families numbered from 1 in the
+     * order of their original numbers.
+     */
+    static class Component {
+        int[] families; // original number of every family of the component
+        int[] relations; // ends of the relations, in the numbering of the component
+        int nrRelations; // number of relations of the component
+        boolean obvious; // whether the component has been answered without the oracle
+        boolean answer; // whether the component admits a solution (for task1 and task2)
+        List<Integer> values = new ArrayList<>(); // answer of the component, as numbers
+    }
+
+    /**
+     * @param taskName the name of the task solved for every component
+     * @param factory  the constructor of the task solving a component
+     */
+    public ComponentTask(String taskName, Supplier<Task> factory) {
+        this.taskName = taskName;
+        this.factory = factory;
+    }
+
+    @Override
+    public void solve() throws IOException, InterruptedException {
+        readProblemData();
+
+        if (components.size() <= 1) {
+            // a connected graph is solved by the task itself, on the original files
+            Task task = factory.get();
+            task.addFiles(inFilename, oracleInFilename, oracleOutFilename, outFilename);
+            task.addOptions(options);
+            task.metrics = metrics;
+            task.deadline = deadline;
+            task.solve();
+            return;
+        }
+
+        solveComponents();
+        if (options.stats) {
+            System.err.println("components: " + components.size() + " components, the biggest of "
+                    + components.get(0).families.length + " families, " + nrObvious
+                    + " answered without the oracle");
+        }
+        writeAnswer();
+    }
+
+    /**
+     * Reads the problem input from inFilename and splits the families into the connected
+     * components of their relations, joining the sets of the two ends of every relation.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    @Override
+    public void readProblemData() throws IOException {
+        int[] ends;
+        try (ProblemReader reader = new ProblemReader(inFilename)) {
+            nrFamilies = reader.nextInt();
+            nrRelations = reader.nextInt();
+            if (hasParameter()) {
+                parameter = reader.nextInt();
+            }
+            ends = reader.readRelations(nrRelations);
+        }
+
+        // joins the sets of related families, the smaller set under the root of the bigger one
+        int[] parents = new int[nrFamilies + 1];
+        int[] sizes = new int[nrFamilies + 1];
+        for (int family = 1; family <= nrFamilies; ++family) {
+            parents[family] = family;
+            sizes[family] = 1;
+        }
+        for (int i = 0; i < nrRelations; ++i) {
+            int root1 = find(parents, ends[2 * i]);
+            int root2 = find(parents, ends[2 * i + 1]);
+            if (root1 != root2) {
+                if (sizes[root1] < sizes[root2]) {
+                    int root = root1;
+                    root1 = root2;
+                    root2 = root;
+                }
+                parents[root2] = root1;
+                sizes[root1] += sizes[root2];
+            }
+        }
+
+        // creates a component for every root, then distributes the families and the relations,
+        // each family getting its number inside its component
+        int[] componentOf = new int[nrFamilies + 1];
+        int[] localNumbers = new int[nrFamilies + 1];
+        List<Component> found = new ArrayList<>();
+        for (int family = 1; family <= nrFamilies; ++family) {
+            if (find(parents, family) == family) {
+                Component component = new Component();
+                component.families = new int[sizes[family]];
+                componentOf[family] = found.size();
+                found.add(component);
+            }
+        }
+        int[] filled = new int[found.size()];
+        for (int family = 1; family <= nrFamilies; ++family) {
+            int index = componentOf[find(parents, family)];
+            componentOf[family] = index;
+            found.get(index).families[filled[index]++] = family;
+            localNumbers[family] = filled[index];
+        }
+        for (int i = 0; i < nrRelations; ++i) {
+            ++found.get(componentOf[ends[2 * i]]).nrRelations;
+        }
+        Arrays.fill(filled, 0);
+        for (Component component : found) {
+            component.relations = new int[2 * component.nrRelations];
+        }
+        for (int i = 0; i < nrRelations; ++i) {
+            int index = componentOf[ends[2 * i]];
+            Component component = found.get(index);
+            component.relations[filled[index]++] = localNumbers[ends[2 * i]];
+            component.relations[filled[index]++] = localNumbers[ends[2 * i + 1]];
+        }
+
+        // orders the components from the biggest one, which is scheduled first
+        found.sort(Comparator.comparingInt((Component component) -> component.families.length)
+                .thenComparingInt(component -> component.nrRelations).reversed());
+        components = found;
+    }
+
+    /**
+     * Finds the root of the set of a family, halving the path towards it.
+     *
+     * @param parents the parent of every family in its set
+     * @param family  the number of the family
+     * @return the root of the set
+     */
+    private static int find(int[] parents, int family) {
+        while (parents[family] != family) {
+            parents[family] = parents[parents[family]];
+            family = parents[family];
+        }
+        return family;
+    }
+
+    /**
+     * @return whether the problem input has a third number on its first line
+     */
+    private boolean hasParameter() {
+        return taskName.equals("task1") || taskName.equals("task2");
+    }
+
+    /**
+     * Solves the components on a pool of workers, in the order of their sizes, taking their
+     * answers as they complete and merging them.
+     *
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    private void solveComponents() throws IOException, InterruptedException {
+        for (Component component : components) {
+            component.obvious = isObvious(component);
+            if (component.obvious) {
+                ++nrObvious;
+            }
+        }
+
+        // the obvious components decide the answer first, being the fastest ones to give an
+        // extended family or to leave a family without a spy
+        problemAnswer = !taskName.equals("task2");
+        for (Component component : components) {
+            if (component.obvious && isDecisive(component)) {
+                problemAnswer = component.answer;
+                families = component.values;
+                return;
+            }
+        }
+
+        // the workers are the threads of the run, each component generating its clauses alone
+        Options componentOptions = options.copy();
+        componentOptions.threads = 1;
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        CompletionService<Component> completed = new ExecutorCompletionService<>(pool);
+        int nrSubmitted = 0;
+        for (int i = 0; i < components.size(); ++i) {
+            Component component = components.get(i);
+            if (!component.obvious) {
+                int index = i;
+                completed.submit(() -> solveComponent(component, index, componentOptions));
+                ++nrSubmitted;
+            }
+        }
+
+        try {
+            for (int i = 0; i < nrSubmitted; ++i) {
+                Component component = completed.take().get();
+                if (isDecisive(component)) {
+                    // the answer of the problem is known, the remaining components are cancelled
+                    problemAnswer = component.answer;
+                    families = component.values;
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to solve a component", e.getCause());
+        } finally {
+            // interrupts the remaining workers, waiting for them to remove their files
+            pool.shutdownNow();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        // merges the answers of the components, all of them needed by the other tasks
+        if (taskName.equals("task1")) {
+            assignedSpies = new int[nrFamilies + 1];
+            for (Component component : components) {
+                for (int i = 0; problemAnswer && i < component.families.length; ++i) {
+                    assignedSpies[component.families[i]] = component.values.get(i);
+                }
+            }
+        } else if (!taskName.equals("task2")) {
+            for (Component component : components) {
+                families.addAll(component.values);
+            }
+            Collections.sort(families);
+        }
+    }
+
+    /**
+     * Answers a component without the oracle when the answer is obvious: a component no bigger
+     * than the number of spies gets a spy for every family, a component too small for the
+     * searched extended family has none of it while any family or relation is an extended
+     * family of size 1 or 2, and a single relation needs one of its families arrested.
+     *
+     * @param component the component to be answered
+     * @return whether the component has been answered
+     */
+    private boolean isObvious(Component component) {
+        int size = component.families.length;
+        switch (taskName) {
+            case "task1":
+                if (size > parameter && component.nrRelations > 0) {
+                    return false;
+                }
+                // a single family still needs a spy
+                component.answer = parameter > 0;
+                for (int i = 0; component.answer && i < size; ++i) {
+                    component.values.add(i + 1);
+                }
+                return true;
+            case "task2":
+                if ((long) component.nrRelations < (long) parameter * (parameter - 1) / 2) {
+                    return true; // too few relations for the extended family, left unanswered
+                }
+                if (parameter > 2) {
+                    return false;
+                }
+                component.answer = true;
+                component.values.add(component.families[component.relations.length > 0
+                        ? component.relations[0] - 1 : 0]);
+                if (parameter == 2) {
+                    component.values.add(component.families[component.relations[1] - 1]);
+                }
+                return true;
+            default:
+                if (size > 2) {
+                    return false;
+                }
+                if (size == 2) {
+                    component.values.add(component.families[0]);
+                }
+                return true;
+        }
+    }
+
+    /**
+     * @param component a solved component
+     * @return whether the answer of the component is the answer of the whole problem: an
+     *         extended family for task2, or a component without spies for task1
+     */
+    private boolean isDecisive(Component component) {
+        switch (taskName) {
+            case "task1":
+                return !component.answer;
+            case "task2":
+                return component.answer;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Solves a component as a separate instance of the task, through its own files, and
+     * translates its answer back to the original numbers of the families.
+     *
+     * @param component the component to be solved
+     * @param index     the index of the component, distinguishing its files
+     * @param options   the settings of the instance
+     * @return the solved component
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    private Component solveComponent(Component component, int index, Options options)
+            throws IOException, InterruptedException {
+        // the files of the component are named after the oracle file, which is never shared by
+        // runs solving at once, unlike the input file
+        String suffix = "_c" + index;
+        String componentIn = oracleInFilename + suffix + "_in";
+        String componentOut = oracleInFilename + suffix + "_out";
+
+        List<String> tokens = new ArrayList<>();
+        try {
+            // writes the input file of the component, in the format of the original one
+            BufferedWriter writer = new BufferedWriter(new FileWriter(componentIn));
+            writer.write(component.families.length + " " + component.nrRelations
+                    + (hasParameter() ? " " + parameter : "") + "\n");
+            for (int i = 0; i < component.nrRelations; ++i) {
+                writer.write(component.relations[2 * i] + " " + component.relations[2 * i + 1]
+                        + "\n");
+            }
+            writer.flush();
+            writer.close();
+
+            Task task = factory.get();
+            task.addFiles(componentIn, oracleInFilename + suffix, oracleOutFilename + suffix,
+                    componentOut);
+            task.addOptions(options);
+            task.metrics = metrics;
+            task.deadline = deadline;
+            task.solve();
+
+            BufferedReader reader = new BufferedReader(new FileReader(componentOut));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                tokens.addAll(Arrays.asList(line.trim().split("\\s+")));
+            }
+            reader.close();
+        } finally {
+            // a failed or cancelled component removes its files too, including the files of
+            // the question of task2 asked by task3
+            for (String filename : Arrays.asList(componentIn, componentOut,
+                    oracleInFilename + suffix, oracleOutFilename + suffix,
+                    oracleInFilename + suffix + "_t2", componentOut + "_t2")) {
+                Files.deleteIfExists(Paths.get(filename));
+            }
+        }
+
+        // the boolean answer of the component comes first for task1 and task2, and the numbers
+        // of its families are mapped to the original ones
+        tokens.removeIf(String::isEmpty);
+        int first = hasParameter() ? 1 : 0;
+        component.answer = !hasParameter() || tokens.get(0).equals("True");
+        for (int i = first; component.answer && i < tokens.size(); ++i) {
+            int value = Integer.parseInt(tokens.get(i));
+            // the spies of task1 keep their numbers, the families get their original ones
+            component.values.add(taskName.equals("task1") ? value
+                    : component.families[value - 1]);
+        }
+        return component;
+    }
+
+    /**
+     * Writes the merged answer to the outFilename, in the format of the task.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    @Override
+    public void writeAnswer() throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(outFilename));
+
+        if (hasParameter()) {
+            writer.write(problemAnswer ? "True\n" : "False\n");
+        }
+        if (taskName.equals("task1")) {
+            for (int family = 1; problemAnswer && family <= nrFamilies; ++family) {
+                writer.write(assignedSpies[family] + " ");
+            }
+        } else if (problemAnswer) {
+            for (Integer family : families) {
+                writer.write(family + " ");
+            }
+        }
+
+        writer.flush();
+        writer.close();
+    }
+}
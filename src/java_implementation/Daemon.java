@@ -0,0 +1,291 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Daemon mode keeping a warm JVM which solves the problem instances sent to it over a local
+ * socket: a Unix domain socket when given a path, or a TCP socket of the loopback interface when
+ * given a port number. Every message is a frame made of its length (a 4 byte big-endian integer)
+ * followed by as many bytes of UTF-8 text:
+ * request  - the name of the task and its optional settings on the first line, followed by the
+ *            problem input, in the format of an input file
+ * response - "OK" on the first line, followed by the answer the task writes to its output file,
+ *            or "ERROR" followed by the cause of the failure
+ * A connection may carry any number of requests, answered in order. The accepted connections
+ * wait in a bounded queue for the "--jobs" workers; once the queue is full, the daemon stops
+ * accepting connections, so the following clients wait in the backlog of the socket.
+ * Every worker keeps its frame buffers, its scratch files and its encoder between requests. The
+ * questions are answered by the in-JVM Max-SAT oracle (which also answers the CNF questions)
+ * unless another oracle is given, spawning no process.
+ */
+public class Daemon {
+    private static final int QUEUE_PER_WORKER = 4; // connections waiting for every worker
+    private static final int MAX_FRAME_SIZE = 1 << 30; // length of the largest request
+
+    private final String[] settings; // settings shared by all the requests
+    private final BlockingQueue<SocketChannel> connections; // connections waiting for a worker
+
+    /**
+     * @param settings  the settings shared by all the requests, in the "--name=value" form
+     * @param nrWorkers the number of requests answered at once
+     */
+    public Daemon(String[] settings, int nrWorkers) {
+        this.settings = settings;
+        connections = new ArrayBlockingQueue<>(QUEUE_PER_WORKER * nrWorkers);
+        for (int i = 0; i < nrWorkers; ++i) {
+            Thread worker = new Thread(this::work, "daemon-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Accepts the connections of the clients until the programme is stopped.
+     *
+     * @param address the path of a Unix domain socket, or the port of a loopback TCP socket
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    public void serve(String address) throws IOException, InterruptedException {
+        ServerSocketChannel server;
+        if (address.matches("\\d+")) {
+            server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address)));
+        } else {
+            // a socket file left by a previous daemon is replaced, and removed at the end
+            Path path = Paths.get(address);
+            Files.deleteIfExists(path);
+            SocketAddress socketAddress = UnixDomainSocketAddress.of(path);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(socketAddress);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // nothing left to do while stopping
+                }
+            }));
+        }
+        System.err.println("daemon: listening on " + address);
+
+        while (true) {
+            // blocks while the queue is full, leaving the clients in the backlog of the socket
+            connections.put(server.accept());
+        }
+    }
+
+    /**
+     * Answers the requests of the queued connections, one connection at a time.
+     */
+    private void work() {
+        try {
+            Worker worker = new Worker();
+            while (true) {
+                try (SocketChannel connection = connections.take()) {
+                    worker.answer(connection);
+                } catch (IOException e) {
+                    System.err.println("daemon: connection lost: " + e.getMessage());
+                } catch (RuntimeException | Error e) {
+                    // such as a frame too large for the memory left, which only drops its
+                    // connection
+                    System.err.println("daemon: connection dropped: " + e);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("daemon: worker stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * State of a worker kept between requests: its buffers, its scratch files and its encoder.
+     */
+    private class Worker {
+        private final ByteBuffer length = ByteBuffer.allocate(4); // length of a frame
+        private ByteBuffer request = ByteBuffer.allocate(1 << 16); // bytes of a request
+        private ByteBuffer response = ByteBuffer.allocate(1 << 16); // bytes of a response
+        private final Path inFile; // problem input of the request
+        private final Path outFile; // answer of the task
+        private final Path oracleInFile; // question addressed to the oracle
+        private final Path oracleOutFile; // answer of the oracle
+        private final ParallelEncoder encoder; // encoder shared by the requests
+
+        Worker() throws IOException {
+            Path scratch = Files.createTempDirectory("daemon");
+            inFile = scratch.resolve("in");
+            outFile = scratch.resolve("out");
+            oracleInFile = scratch.resolve("sat.cnf");
+            oracleOutFile = scratch.resolve("sat.sol");
+            // removes the scratch files, including those derived by the tasks, at the end
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try (Stream<Path> files = Files.list(scratch)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.deleteIfExists(file);
+                    }
+                    Files.deleteIfExists(scratch);
+                } catch (IOException e) {
+                    // nothing left to do while stopping
+                }
+            }));
+            encoder = new ParallelEncoder(Options.parse(settings, 0).threads);
+        }
+
+        /**
+         * Answers the requests of a connection until the client closes it.
+         *
+         * @param connection the connection of the client
+         * @throws IOException input/output exception to be thrown
+         */
+        void answer(SocketChannel connection) throws IOException {
+            while (readFrame(connection)) {
+                response.clear();
+                try {
+                    solve();
+                } catch (Throwable e) {
+                    // a failed oracle or a request exhausting the memory or the stack is answered
+                    // like any other failure, keeping the worker
+                    response.clear();
+                    put(("ERROR\n" + e).getBytes(StandardCharsets.UTF_8));
+                }
+                response.flip();
+                length.clear();
+                length.putInt(response.remaining()).flip();
+                ByteBuffer[] frame = {length, response};
+                while (response.hasRemaining()) {
+                    connection.write(frame);
+                }
+            }
+        }
+
+        /**
+         * Reads the next request of the connection into the request buffer, growing it when
+         * needed.
+         *
+         * @param connection the connection of the client
+         * @return false if the client closed the connection
+         * @throws IOException input/output exception to be thrown
+         */
+        private boolean readFrame(SocketChannel connection) throws IOException {
+            length.clear();
+            while (length.hasRemaining()) {
+                if (connection.read(length) < 0) {
+                    if (length.position() == 0) {
+                        return false;
+                    }
+                    throw new IOException("Truncated frame length");
+                }
+            }
+            int size = length.flip().getInt();
+            if (size < 0 || size > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length: " + size);
+            }
+            if (request.capacity() < size) {
+                request = ByteBuffer.allocate(Math.max(size, 2 * request.capacity()));
+            }
+            request.clear().limit(size);
+            while (request.hasRemaining()) {
+                if (connection.read(request) < 0) {
+                    throw new IOException("Truncated frame");
+                }
+            }
+            request.flip();
+            return true;
+        }
+
+        /**
+         * Solves the request held by the request buffer through the scratch files, leaving the
+         * answer in the response buffer.
+         *
+         * @throws IOException          input/output exception to be thrown
+         * @throws InterruptedException interruption exception to be thrown
+         */
+        private void solve() throws IOException, InterruptedException {
+            // the first line names the task and its settings, which override the shared ones
+            int lineEnd = 0;
+            while (lineEnd < request.limit() && request.get(lineEnd) != '\n') {
+                ++lineEnd;
+            }
+            String[] header = new String(request.array(), 0, lineEnd, StandardCharsets.UTF_8)
+                    .trim().split("\\s+");
+            if (Main.factory(header[0]) == null) {
+                throw new IllegalArgumentException("Not a valid task: " + header[0]);
+            }
+            List<String> arguments = new ArrayList<>();
+            arguments.add("--oracle=maxsat");
+            arguments.addAll(Arrays.asList(settings));
+            arguments.addAll(Arrays.asList(header).subList(1, header.length));
+            Options options = Options.parse(arguments.toArray(new String[0]), 0);
+
+            // the rest of the request is the problem input
+            request.position(Math.min(lineEnd + 1, request.limit()));
+            try (FileChannel input = FileChannel.open(inFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (request.hasRemaining()) {
+                    input.write(request);
+                }
+            }
+
+            Task task = Main.createTask(header[0], options);
+            task.addFiles(inFile.toString(), oracleInFile.toString(), oracleOutFile.toString(),
+                    outFile.toString());
+            task.addOptions(options);
+            task.encoder = encoder;
+            task.solve();
+
+            put("OK\n".getBytes(StandardCharsets.UTF_8));
+            try (FileChannel output = FileChannel.open(outFile, StandardOpenOption.READ)) {
+                ensureResponse((int) output.size());
+                while (output.read(response) > 0) {
+                    // reads the whole answer
+                }
+            }
+        }
+
+        /**
+         * Appends bytes to the response, growing it when needed.
+         *
+         * @param bytes the bytes to be appended
+         */
+        private void put(byte[] bytes) {
+            ensureResponse(bytes.length);
+            response.put(bytes);
+        }
+
+        /**
+         * Makes room in the response buffer for the given number of bytes.
+         *
+         * @param size the number of bytes to be appended
+         */
+        private void ensureResponse(int size) {
+            if (response.remaining() < size) {
+                ByteBuffer grown = ByteBuffer.allocate(
+                        Math.max(response.position() + size, 2 * response.capacity()));
+                response.flip();
+                grown.put(response);
+                response = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Clause sink writing the question in the DIMACS (or weighted DIMACS) text format understood by
+ * the external oracle. The numbers are formatted as ASCII digits straight into a reusable byte
+ * buffer, which is written to the channel whenever it fills up, so no object is created for any
+ * clause.
+ * When writing to a file, the header may be backfilled: a blank line is reserved in its place
+ * and, once the question is closed, it is overwritten with the numbers of variables and clauses
+ * counted while the clauses were added, so the counts given upfront by the encoder do not have
+ * to match the clauses exactly.
+ */
+public class DimacsWriter implements ClauseSink {
+    static final int BUFFER_SIZE = 1 << 20; // capacity of the buffer of formatted clauses
+    // room needed by the longest element written at once: a sign, 19 digits and a separator
+    private static final int MAX_NUMBER_LENGTH = 21;
+    // length of the reserved header line: "p wcnf ", three numbers with their separators
+    private static final int HEADER_LENGTH = 7 + 3 * MAX_NUMBER_LENGTH;
+
+    private final WritableByteChannel channel; // destination of the formatted clauses
+    private final byte[] bytes; // formatted bytes not written yet
+    private final ByteBuffer buffer; // view of the bytes for the channel
+    private int position; // number of formatted bytes in the buffer
+    private boolean clauseStarted; // whether the current clause already has a literal
+    private final boolean backfill; // whether the header is written once the question is closed
+    private long headerPosition = -1; // position of the reserved header in the file, if any
+    long declaredVariables; // number of variables given in the header
+    private long top; // weight of the hard clauses, or 0 for a CNF question
+    long nrClauses; // number of clauses added so far
+    int maxVariable; // biggest variable added so far
+    long nrBytes; // number of bytes written to the channel so far
+
+    public DimacsWriter(WritableByteChannel channel) {
+        this(channel, false);
+    }
+
+    public DimacsWriter(WritableByteChannel channel, boolean backfill) {
+        this(channel, backfill, BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel  the destination of the formatted clauses
+     * @param backfill whether the header is written with the counted numbers of variables and
+     *                 clauses once the question is closed, which needs a file channel
+     * @param bufferSize the capacity of the buffer of formatted clauses
+     */
+    public DimacsWriter(WritableByteChannel channel, boolean backfill, int bufferSize) {
+        if (backfill && !(channel instanceof FileChannel)) {
+            throw new IllegalArgumentException("Only a file header can be backfilled");
+        }
+        this.channel = channel;
+        this.backfill = backfill;
+        bytes = new byte[bufferSize];
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses) throws IOException {
+        declaredVariables = nrVariables;
+        if (backfill) {
+            reserveHeader(nrVariables, 0);
+            return;
+        }
+        text("p cnf ");
+        number(nrVariables, ' ');
+        number(nrClauses, '\n');
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses, long top) throws IOException {
+        declaredVariables = nrVariables;
+        if (backfill) {
+            reserveHeader(nrVariables, top);
+            return;
+        }
+        text("p wcnf ");
+        number(nrVariables, ' ');
+        number(nrClauses, ' ');
+        number(top, '\n');
+    }
+
+    @Override
+    public void weight(long weight) throws IOException {
+        number(weight, ' ');
+    }
+
+    @Override
+    public void add(int literal) throws IOException {
+        // ends the line of the clause when the terminating 0 is met
+        number(literal, literal == 0 ? '\n' : ' ');
+        clauseStarted = literal != 0;
+        if (literal == 0) {
+            ++nrClauses;
+        } else {
+            maxVariable = Math.max(maxVariable, Math.abs(literal));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (clauseStarted) {
+            throw new IllegalStateException("Unterminated clause in oracle question");
+        }
+        flush();
+        if (headerPosition >= 0) {
+            writeHeader();
+        }
+        channel.close();
+    }
+
+    /**
+     * Appends clauses already formatted elsewhere, after the ones added so far.
+     *
+     * @param blocks      the formatted clauses, in order
+     * @param nrClauses   the number of clauses of the blocks
+     * @param maxVariable the biggest variable of the blocks
+     * @throws IOException input/output exception to be thrown
+     */
+    void append(ByteBuffer[] blocks, long nrClauses, int maxVariable) throws IOException {
+        if (clauseStarted) {
+            throw new IllegalStateException("Clauses appended inside an unterminated clause");
+        }
+        flush();
+        for (ByteBuffer block : blocks) {
+            nrBytes += block.remaining();
+        }
+        if (channel instanceof GatheringByteChannel) {
+            // hands all the blocks to the channel at once, until every one of them is written
+            GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            for (int first = 0; first < blocks.length; ) {
+                gathering.write(blocks, first, blocks.length - first);
+                while (first < blocks.length && !blocks[first].hasRemaining()) {
+                    ++first;
+                }
+            }
+        } else {
+            for (ByteBuffer block : blocks) {
+                while (block.hasRemaining()) {
+                    channel.write(block);
+                }
+            }
+        }
+        this.nrClauses += nrClauses;
+        this.maxVariable = Math.max(this.maxVariable, maxVariable);
+    }
+
+    /**
+     * Reserves a blank line in place of the header, to be overwritten once the question is
+     * closed.
+     *
+     * @param nrVariables the number of variables given by the encoder
+     * @param top         the weight marking a hard clause, or 0 for a CNF question
+     * @throws IOException input/output exception to be thrown
+     */
+    private void reserveHeader(long nrVariables, long top) throws IOException {
+        declaredVariables = nrVariables;
+        this.top = top;
+        headerPosition = ((FileChannel) channel).position() + position;
+        for (int i = 0; i < HEADER_LENGTH - 1; ++i) {
+            text(" ");
+        }
+        text("\n");
+    }
+
+    /**
+     * Overwrites the reserved line with the header of the question, through a positional write
+     * after all the clauses have been flushed. The variables not met in any clause but given by
+     * the encoder are kept, so the answer still covers them.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void writeHeader() throws IOException {
+        text(top > 0 ? "p wcnf " : "p cnf ");
+        number(Math.max(declaredVariables, maxVariable), ' ');
+        number(nrClauses, top > 0 ? ' ' : '\n');
+        if (top > 0) {
+            number(top, '\n');
+        }
+        // pads the line with spaces before its end, keeping the length of the reserved one
+        bytes[position - 1] = ' ';
+        while (position < HEADER_LENGTH - 1) {
+            bytes[position++] = ' ';
+        }
+        bytes[position++] = '\n';
+
+        buffer.clear().limit(position);
+        long filePosition = headerPosition;
+        while (buffer.hasRemaining()) {
+            filePosition += ((FileChannel) channel).write(buffer, filePosition);
+        }
+        position = 0;
+    }
+
+    /**
+     * Formats a number followed by a separator.
+     *
+     * @param value     the number to be formatted
+     * @param separator the character written after the number
+     * @throws IOException input/output exception to be thrown
+     */
+    private void number(long value, char separator) throws IOException {
+        if (position + MAX_NUMBER_LENGTH > bytes.length) {
+            flush();
+        }
+        // works on the non-positive value, as Long.MIN_VALUE has no positive opposite
+        if (value < 0) {
+            bytes[position++] = '-';
+        } else {
+            value = -value;
+        }
+
+        // counts the digits, then writes them from the last one backwards
+        int nrDigits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            ++nrDigits;
+        }
+        for (int i = position + nrDigits - 1; i >= position; --i) {
+            bytes[i] = (byte) ('0' - value % 10);
+            value /= 10;
+        }
+        position += nrDigits;
+        bytes[position++] = (byte) separator;
+    }
+
+    /**
+     * Copies a fixed piece of ASCII text, such as the beginning of the header.
+     *
+     * @param text the text to be written
+     * @throws IOException input/output exception to be thrown
+     */
+    private void text(String text) throws IOException {
+        if (position + text.length() > bytes.length) {
+            flush();
+        }
+        for (int i = 0; i < text.length(); ++i) {
+            bytes[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Writes the formatted bytes to the channel and empties the buffer.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void flush() throws IOException {
+        nrBytes += position;
+        buffer.clear().limit(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+}
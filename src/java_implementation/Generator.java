@@ -0,0 +1,406 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of problem inputs of controlled size and structure, drawn from a seed so the same
+ * settings always give the same file. The graph models are:
+ * er             - every pair of families is related with probability "--density"
+ *                  (Erdős–Rényi)
+ * ba             - every family is related to "--degree" earlier families, chosen with a
+ *                  probability proportional to their number of relations (Barabási–Albert)
+ * clique         - an Erdős–Rényi graph holding a planted clique of "--k" families
+ * colourable     - an Erdős–Rényi graph whose families are split into "--k" colours, no relation
+ *                  joining two families of the same colour
+ * bipartite      - an Erdős–Rényi graph between the first "--k" families and the other ones
+ * near-complete  - a complete graph from which every relation is removed with probability
+ *                  "--density"
+ * The relations are drawn row by row through geometric skips between the related pairs
+ * (Batagelj and Brandes), so a graph of any size is written in time proportional to its number
+ * of relations and without keeping them in memory: the header, whose number of relations is only
+ * known at the end, is a blank line overwritten once the relations are written. The
+ * Barabási–Albert model keeps the ends of its relations (4 bytes each), from which the next ends
+ * are drawn.
+ * The planted structure, giving the known answer of the instance, is printed to the standard
+ * error.
+ */
+public class Generator {
+    private static final int BUFFER_SIZE = 1 << 20; // capacity of the buffer of formatted bytes
+    private static final int HEADER_LENGTH = 3 * 21; // length of the reserved header line
+
+    private final String model; // graph model
+    private String task = "task1"; // task whose input format is written
+    private int nrFamilies = 1000; // number of families (corresponding to "N")
+    private double density = 0.1; // probability of a pair of families to be related
+    private int parameter = 3; // planted structure, and "K" of task1 and task2
+    private int degree = 3; // relations added with every family of the Barabási–Albert model
+    private long seed = 1; // seed of the random draws
+
+    private FileChannel channel; // destination of the problem input
+    private final byte[] bytes = new byte[BUFFER_SIZE]; // formatted bytes not written yet
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes); // view of the bytes for the channel
+    private int position; // number of formatted bytes in the buffer
+    long nrRelations; // number of relations written so far
+
+    /**
+     * Builds the generator from the command line arguments starting at the given index.
+     *
+     * @param model the graph model
+     * @param args  the command line arguments
+     * @param first the index of the first optional argument
+     * @throws IllegalArgumentException if the model or an argument is unknown or malformed
+     */
+    public Generator(String model, String[] args, int first) {
+        this.model = Options.oneOf("model", model, "er", "ba", "clique", "colourable",
+                "bipartite", "near-complete");
+
+        for (int i = first; i < args.length; ++i) {
+            int separator = args[i].indexOf('=');
+            if (!args[i].startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Malformed option: " + args[i]);
+            }
+            String name = args[i].substring(2, separator);
+            String value = args[i].substring(separator + 1);
+
+            switch (name) {
+                case "task":
+                    task = Options.oneOf(name, value, "task1", "task2", "task3", "bonus"); break;
+                case "families":
+                    nrFamilies = Options.positive(name, value); break;
+                case "density":
+                    density = probability(name, value); break;
+                case "k":
+                    parameter = Options.positive(name, value); break;
+                case "degree":
+                    degree = Options.positive(name, value); break;
+                case "seed":
+                    try {
+                        seed = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid value for --" + name + ": "
+                                + value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Writes the problem input to the given file and reports its planted structure.
+     *
+     * @param filename the destination of the problem input
+     * @throws IOException input/output exception to be thrown
+     */
+    public void generate(String filename) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (FileChannel output = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel = output;
+            position = 0;
+            nrRelations = 0;
+            for (int i = 0; i < HEADER_LENGTH - 1; ++i) {
+                bytes[position++] = ' ';
+            }
+            bytes[position++] = '\n';
+
+            String answer;
+            switch (model) {
+                case "er":
+                    randomPairs(random, density, null);
+                    answer = "none planted";
+                    break;
+                case "ba":
+                    preferentialAttachment(random);
+                    answer = "none planted";
+                    break;
+                case "clique":
+                    answer = plantedClique(random);
+                    break;
+                case "colourable":
+                    answer = plantedColouring(random);
+                    break;
+                case "bipartite":
+                    int side = Math.min(parameter, nrFamilies);
+                    randomPairs(random, density, (family1, family2) ->
+                            (family1 <= side) != (family2 <= side));
+                    answer = "families 1.." + side + " and " + (side + 1) + ".." + nrFamilies
+                            + " are independent, a vertex cover of at most "
+                            + Math.min(side, nrFamilies - side) + " families";
+                    break;
+                default:
+                    randomPairs(random, 1 - density, null);
+                    answer = "none planted";
+                    break;
+            }
+            flush();
+            writeHeader();
+
+            System.err.println("generate: " + model + " graph of " + nrFamilies + " families and "
+                    + nrRelations + " relations (seed " + seed + "), " + answer);
+        }
+    }
+
+    /**
+     * Relation kept among the pairs drawn by randomPairs().
+     */
+    private interface Filter {
+        boolean keeps(int family1, int family2);
+    }
+
+    /**
+     * Writes every pair of families with the given probability, skipping between the drawn
+     * pairs by a geometrically distributed number of pairs, row after row.
+     *
+     * @param random      the source of the random draws
+     * @param probability the probability of a pair to be drawn
+     * @param filter      the condition of a drawn pair to be written, or null for all
+     * @throws IOException input/output exception to be thrown
+     */
+    private void randomPairs(SplittableRandom random, double probability, Filter filter)
+            throws IOException {
+        if (probability <= 0) {
+            return;
+        }
+        double logSkip = probability < 1 ? Math.log(1 - probability) : 0;
+        // the pairs of row "family1" are ("family1", "family2") with "family2 < family1"
+        long family2 = 0;
+        for (int family1 = 2; family1 <= nrFamilies; ) {
+            if (logSkip < 0) {
+                // a skip beyond the last pair ends the draws, whatever its length
+                double skip = Math.floor(Math.log(1 - random.nextDouble()) / logSkip);
+                family2 += 1 + (long) Math.min(skip, (double) nrFamilies * nrFamilies);
+            } else {
+                ++family2;
+            }
+            while (family2 >= family1 && family1 <= nrFamilies) {
+                family2 -= family1 - 1;
+                ++family1;
+            }
+            if (family1 <= nrFamilies
+                    && (filter == null || filter.keeps(family1, (int) family2))) {
+                relation(family1, (int) family2);
+            }
+        }
+    }
+
+    /**
+     * Writes a Barabási–Albert graph: starting from a clique of "--degree + 1" families, every
+     * next family is related to "--degree" distinct earlier families, drawn from the ends of the
+     * relations written so far.
+     *
+     * @param random the source of the random draws
+     * @throws IOException input/output exception to be thrown
+     */
+    private void preferentialAttachment(SplittableRandom random) throws IOException {
+        int first = Math.min(degree + 1, nrFamilies);
+        long nrEnds = (long) first * (first - 1)
+                + 2L * degree * Math.max(nrFamilies - first, 0);
+        int[] ends = new int[Math.toIntExact(nrEnds)];
+        int size = 0;
+        for (int family1 = 2; family1 <= first; ++family1) {
+            for (int family2 = 1; family2 < family1; ++family2) {
+                relation(family1, family2);
+                ends[size++] = family1;
+                ends[size++] = family2;
+            }
+        }
+
+        int[] chosen = new int[degree];
+        for (int family = first + 1; family <= nrFamilies; ++family) {
+            int nrChosen = 0;
+            while (nrChosen < degree) {
+                int candidate = size > 0 ? ends[random.nextInt(size)] : 1;
+                boolean drawn = false;
+                for (int i = 0; i < nrChosen; ++i) {
+                    drawn |= chosen[i] == candidate;
+                }
+                if (!drawn) {
+                    chosen[nrChosen++] = candidate;
+                }
+            }
+            for (int i = 0; i < degree; ++i) {
+                relation(family, chosen[i]);
+                ends[size++] = family;
+                ends[size++] = chosen[i];
+            }
+        }
+    }
+
+    /**
+     * Writes an Erdős–Rényi graph holding a clique of "--k" families drawn at random.
+     *
+     * @param random the source of the random draws
+     * @return the planted clique
+     * @throws IOException input/output exception to be thrown
+     */
+    private String plantedClique(SplittableRandom random) throws IOException {
+        boolean[] planted = new boolean[nrFamilies + 1];
+        int[] members = sample(random, Math.min(parameter, nrFamilies));
+        for (int family : members) {
+            planted[family] = true;
+        }
+
+        // the pairs of the clique are written apart, once
+        randomPairs(random, density, (family1, family2) -> !planted[family1] || !planted[family2]);
+        for (int i = 0; i < members.length; ++i) {
+            for (int j = 0; j < i; ++j) {
+                relation(members[i], members[j]);
+            }
+        }
+        return "clique of " + members.length + " families: " + join(members);
+    }
+
+    /**
+     * Writes an Erdős–Rényi graph whose families get one of "--k" colours at random, the
+     * families of the same colour never being related.
+     *
+     * @param random the source of the random draws
+     * @return the planted colouring
+     * @throws IOException input/output exception to be thrown
+     */
+    private String plantedColouring(SplittableRandom random) throws IOException {
+        int[] colours = new int[nrFamilies + 1];
+        for (int family = 1; family <= nrFamilies; ++family) {
+            colours[family] = 1 + random.nextInt(parameter);
+        }
+        randomPairs(random, density, (family1, family2) -> colours[family1] != colours[family2]);
+        return "colourable with " + parameter + " spies";
+    }
+
+    /**
+     * Draws distinct families at random, through a partial Fisher–Yates shuffle.
+     *
+     * @param random the source of the random draws
+     * @param size   the number of families to be drawn
+     * @return the drawn families, in increasing order
+     */
+    private int[] sample(SplittableRandom random, int size) {
+        int[] families = new int[nrFamilies];
+        for (int i = 0; i < nrFamilies; ++i) {
+            families[i] = i + 1;
+        }
+        for (int i = 0; i < size; ++i) {
+            int j = i + random.nextInt(nrFamilies - i);
+            int family = families[i];
+            families[i] = families[j];
+            families[j] = family;
+        }
+        int[] drawn = Arrays.copyOf(families, size);
+        Arrays.sort(drawn);
+        return drawn;
+    }
+
+    /**
+     * @param families the families to be listed
+     * @return the families separated by spaces
+     */
+    private static String join(int[] families) {
+        StringBuilder list = new StringBuilder();
+        for (int family : families) {
+            list.append(list.length() > 0 ? " " : "").append(family);
+        }
+        return list.toString();
+    }
+
+    /**
+     * Writes a relation on its own line.
+     *
+     * @param family1 the first family of the relation
+     * @param family2 the second family of the relation
+     * @throws IOException input/output exception to be thrown
+     */
+    private void relation(int family1, int family2) throws IOException {
+        if (position + 24 > bytes.length) {
+            flush();
+        }
+        number(family1, ' ');
+        number(family2, '\n');
+        ++nrRelations;
+    }
+
+    /**
+     * Formats a non-negative number followed by a separator.
+     *
+     * @param value     the number to be formatted
+     * @param separator the character written after the number
+     */
+    private void number(long value, char separator) {
+        // counts the digits, then writes them from the last one backwards
+        int nrDigits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            ++nrDigits;
+        }
+        for (int i = position + nrDigits - 1; i >= position; --i) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += nrDigits;
+        bytes[position++] = (byte) separator;
+    }
+
+    /**
+     * Overwrites the reserved line with the header of the problem input, padded with spaces.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void writeHeader() throws IOException {
+        number(nrFamilies, ' ');
+        number(nrRelations, task.equals("task1") || task.equals("task2") ? ' ' : '\n');
+        if (task.equals("task1") || task.equals("task2")) {
+            number(parameter, '\n');
+        }
+        bytes[position - 1] = ' ';
+        while (position < HEADER_LENGTH - 1) {
+            bytes[position++] = ' ';
+        }
+        bytes[position++] = '\n';
+
+        buffer.clear().limit(position);
+        long filePosition = 0;
+        while (buffer.hasRemaining()) {
+            filePosition += channel.write(buffer, filePosition);
+        }
+        position = 0;
+    }
+
+    /**
+     * Writes the formatted bytes to the channel and empties the buffer.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void flush() throws IOException {
+        buffer.clear().limit(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+
+    /**
+     * Verifies that the value of a setting is a probability.
+     *
+     * @param name  the name of the setting
+     * @param value the value given on the command line
+     * @return the probability
+     * @throws IllegalArgumentException if the value is not between 0 and 1
+     */
+    private static double probability(String name, String value) {
+        try {
+            double number = Double.parseDouble(value);
+            if (number >= 0 && number <= 1) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below, like a value out of range
+        }
+        throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+}
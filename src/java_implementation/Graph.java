@@ -0,0 +1,264 @@
+// Copyright 2020
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Undirected graph of the relations between the Mafia families, numbered from 1 to "N", kept in
+ * two primitive forms:
+ * CSR    - the neighbours of all the nodes stored one after the other in a single array, the
+ *          neighbours of node "u" being found between offsets[u] and offsets[u + 1], for
+ *          iterating over the relations of a node
+ * bitset - a row of "N / 64 + 1" words for every node, bit "v" of row "u" being set whenever the
+ *          nodes are related, for testing a relation in constant time and for iterating over the
+ *          complementary graph one word (64 nodes) at a time
+ * The bitset costs "N^2 / 64" words, so it is only built on the first iteration over the
+ * complementary graph (which takes "O(N^2)" time anyway), or on the first test of a relation
+ * when the graph is dense enough for it not to outweigh the CSR form. The relations of a sparse
+ * graph are otherwise tested by scanning the shorter list of neighbours.
+ */
+public class Graph {
+    final int nrNodes; // number of nodes (corresponding to "N")
+    final int nrEdges; // number of edges (corresponding to "M")
+    private final int[] offsets; // start of the neighbours of every node in the array below
+    private final int[] neighbours; // neighbours of all the nodes, grouped by node
+    private final int nrWords; // number of words of a row of the adjacency matrix
+    private final boolean dense; // whether the relations are tested through the matrix
+    // rows of the adjacency matrix, one bit for every node, or null until it is needed
+    private volatile long[] adjacency;
+
+    /**
+     * Builds the graph from the list of its edges.
+     *
+     * @param nrNodes the number of nodes
+     * @param edges   the ends of the edges, edge "i" joining edges[2 * i] and edges[2 * i + 1]
+     * @param nrEdges the number of edges
+     */
+    public Graph(int nrNodes, int[] edges, int nrEdges) {
+        this.nrNodes = nrNodes;
+        this.nrEdges = nrEdges;
+        nrWords = (nrNodes >> 6) + 1;
+        dense = (long) (nrNodes + 1) * nrWords <= nrEdges;
+
+        // counts the neighbours of every node, then turns the counts into offsets
+        offsets = new int[nrNodes + 2];
+        for (int i = 0; i < 2 * nrEdges; ++i) {
+            ++offsets[edges[i] + 1];
+        }
+        for (int node = 1; node <= nrNodes + 1; ++node) {
+            offsets[node] += offsets[node - 1];
+        }
+
+        // places every edge in the lists of both its ends, keeping the input order
+        neighbours = new int[2 * nrEdges];
+        int[] next = new int[nrNodes + 1];
+        System.arraycopy(offsets, 0, next, 0, nrNodes + 1);
+        for (int i = 0; i < nrEdges; ++i) {
+            int node1 = edges[2 * i];
+            int node2 = edges[2 * i + 1];
+            neighbours[next[node1]++] = node2;
+            neighbours[next[node2]++] = node1;
+        }
+    }
+
+    /**
+     * Builds the adjacency matrix on its first use, once for all the threads sharing the graph.
+     *
+     * @return the rows of the adjacency matrix
+     * @throws IllegalArgumentException if the matrix does not fit in an array
+     */
+    private long[] matrix() {
+        long[] matrix = adjacency;
+        if (matrix != null) {
+            return matrix;
+        }
+        synchronized (this) {
+            if (adjacency == null) {
+                long size = (long) (nrNodes + 1) * nrWords;
+                if (size > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("The adjacency matrix of " + nrNodes
+                            + " families needs " + size + " words, more than an array holds");
+                }
+                matrix = new long[(int) size];
+                for (int node1 = 1; node1 <= nrNodes; ++node1) {
+                    long row = (long) node1 * nrWords;
+                    for (int i = offsets[node1]; i < offsets[node1 + 1]; ++i) {
+                        int node2 = neighbours[i];
+                        matrix[(int) (row + (node2 >> 6))] |= 1L << node2;
+                    }
+                }
+                adjacency = matrix;
+            }
+            return adjacency;
+        }
+    }
+
+    /**
+     * @param node1 a node of the graph
+     * @param node2 another node of the graph
+     * @return whether the two nodes are related
+     */
+    public boolean isEdge(int node1, int node2) {
+        if (dense || adjacency != null) {
+            return (matrix()[(int) ((long) node1 * nrWords + (node2 >> 6))] & (1L << node2))
+                    != 0;
+        }
+        // scans the neighbours of the node with fewer of them
+        if (degree(node1) > degree(node2)) {
+            int node = node1;
+            node1 = node2;
+            node2 = node;
+        }
+        for (int i = offsets[node1]; i < offsets[node1 + 1]; ++i) {
+            if (neighbours[i] == node2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param node a node of the graph
+     * @return the number of neighbours of the node
+     */
+    public int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @param node  a node of the graph
+     * @param index the index of the neighbour, below the degree of the node
+     * @return the neighbour of the node found at the given index
+     */
+    public int neighbour(int node, int index) {
+        return neighbours[offsets[node] + index];
+    }
+
+    /**
+     * Finds the first node from the given one onwards which is not related to the given node
+     * (the node itself excepted), skipping 64 related nodes at a time.
+     *
+     * @param node the node whose relations are searched
+     * @param from the first candidate node
+     * @return the first unrelated node, or -1 if there is none left
+     */
+    public int nextNonNeighbour(int node, int from) {
+        if (from > nrNodes) {
+            return -1;
+        }
+        long[] matrix = matrix();
+        long row = (long) node * nrWords;
+        int word = from >> 6;
+        // the bits below the first candidate are treated as related
+        long unrelated = ~matrix[(int) (row + word)] & (-1L << from);
+        while (true) {
+            // the node itself is not part of the complementary graph
+            if (word == node >> 6) {
+                unrelated &= ~(1L << node);
+            }
+            if (unrelated != 0) {
+                int candidate = (word << 6) + Long.numberOfTrailingZeros(unrelated);
+                return candidate <= nrNodes ? candidate : -1;
+            }
+            if (++word == nrWords) {
+                return -1;
+            }
+            unrelated = ~matrix[(int) (row + word)];
+        }
+    }
+
+    /**
+     * @return the number of edges of the complementary graph
+     */
+    public long complementNrEdges() {
+        return (long) nrNodes * (nrNodes - 1) / 2 - nrEdges;
+    }
+
+    /**
+     * Builds an independent set by repeatedly choosing the node with the fewest neighbours left and
+     * discarding its neighbours. The remaining nodes are kept in buckets by their degree (doubly
+     * linked lists threaded through arrays), so the node of minimum degree is found by moving up
+     * from the lowest degree seen, which only drops when a degree is decreased, in "O(N + M)".
+     *
+     * @return the nodes of the independent set
+     */
+    public List<Integer> greedyIndependentSet() {
+        int[] degrees = new int[nrNodes + 1];
+        boolean[] removed = new boolean[nrNodes + 1];
+        int maxDegree = 0;
+        for (int node = 1; node <= nrNodes; ++node) {
+            degrees[node] = degree(node);
+            maxDegree = Math.max(maxDegree, degrees[node]);
+        }
+
+        // the first node of every bucket, or 0, and the neighbours of every node in its bucket;
+        // the nodes are inserted from the last one, so every bucket starts in increasing order
+        int[] heads = new int[maxDegree + 1];
+        int[] next = new int[nrNodes + 1];
+        int[] previous = new int[nrNodes + 1];
+        for (int node = nrNodes; node >= 1; --node) {
+            link(node, degrees[node], heads, next, previous);
+        }
+
+        List<Integer> independentSet = new ArrayList<>();
+        int minDegree = 0;
+        while (true) {
+            // picks the first node of the lowest nonempty bucket
+            while (minDegree <= maxDegree && heads[minDegree] == 0) {
+                ++minDegree;
+            }
+            if (minDegree > maxDegree) {
+                return independentSet;
+            }
+            int best = heads[minDegree];
+
+            // removes the chosen node together with its neighbours, moving the nodes adjacent to
+            // the removed ones to the bucket below
+            independentSet.add(best);
+            removed[best] = true;
+            unlink(best, degrees[best], heads, next, previous);
+            for (int i = 0; i < degree(best); ++i) {
+                int neighbour = neighbour(best, i);
+                if (removed[neighbour]) {
+                    continue;
+                }
+                removed[neighbour] = true;
+                unlink(neighbour, degrees[neighbour], heads, next, previous);
+                for (int j = 0; j < degree(neighbour); ++j) {
+                    int affected = neighbour(neighbour, j);
+                    if (!removed[affected]) {
+                        unlink(affected, degrees[affected], heads, next, previous);
+                        link(affected, --degrees[affected], heads, next, previous);
+                        minDegree = Math.min(minDegree, degrees[affected]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts a node at the front of the bucket of the given degree.
+     */
+    private static void link(int node, int degree, int[] heads, int[] next, int[] previous) {
+        next[node] = heads[degree];
+        previous[node] = 0;
+        if (heads[degree] != 0) {
+            previous[heads[degree]] = node;
+        }
+        heads[degree] = node;
+    }
+
+    /**
+     * Takes a node out of the bucket of the given degree.
+     */
+    private static void unlink(int node, int degree, int[] heads, int[] next, int[] previous) {
+        if (previous[node] != 0) {
+            next[previous[node]] = next[node];
+        } else {
+            heads[degree] = next[node];
+        }
+        if (next[node] != 0) {
+            previous[next[node]] = previous[node];
+        }
+    }
+}
@@ -0,0 +1,335 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Oracle stage trying the probSAT stochastic local search on a CNF question before the complete
+ * oracle. The clauses are kept in memory while they are being formulated; asking starts from a
+ * random assignment and repeatedly picks a falsified clause, flipping one of its variables with
+ * a probability decreasing with its break count (the number of clauses which only that variable
+ * satisfies, falsified by the flip). A model found within the budget of flips answers the
+ * question without any file or process, while a search giving up hands the recorded clauses to
+ * the complete oracle, the only one able to refute them. Weighted questions, and questions too
+ * big to be kept in memory, are handed over as soon as their header is given.
+ * The variables are given in the DIMACS convention (starting from 1); internally, variable "v"
+ * (starting from 0) has the positive literal "2 * v" and the negative literal "2 * v + 1".
+ */
+public class LocalSearchOracle implements Oracle, ClauseSink {
+    // weights of the variables by break count, "(EPSILON + break) ^ -CB" as in the polynomial
+    // variant of probSAT, the counts above the table sharing its last weight
+    private static final double CB = 2.3;
+    private static final double EPSILON = 1;
+    private static final double[] WEIGHTS = new double[64];
+    private static final long SEED = 2020; // seed of every search, so the answers are reproducible
+    // biggest number of clauses of a question kept in memory for the search
+    private static final long MAX_CLAUSES = 1 << 22;
+    // the clock and the interruption of the thread are only checked every few flips
+    private static final int CHECK_INTERVAL = 1024;
+
+    static {
+        for (int i = 0; i < WEIGHTS.length; ++i) {
+            WEIGHTS[i] = Math.pow(EPSILON + i, -CB);
+        }
+    }
+
+    final Oracle complete; // oracle answering the questions given up by the search
+    private final long maxFlips; // budget of flips of an answer
+    private long deadline = Long.MAX_VALUE; // System.nanoTime() value ending every answer
+    ClauseSink forwarded; // sink of the complete oracle, once the question is handed over
+    private long nrVariables; // number of variables given in the header
+    private long nrClauses; // number of clauses given in the header
+    private int[] literals = new int[1024]; // literals of all the clauses, one after the other
+    private int nrLiterals;
+    private int[] starts = new int[256]; // offset of every clause in the array above
+    private int clauseCount; // number of clauses added so far
+    private int clauseStart; // offset of the clause being added
+    private int maxVariable; // biggest variable added so far
+    boolean solved; // whether the last question was answered by the search
+    private int[] model = new int[0]; // state of the variables given by the search
+    long nrFlips; // number of flips of the last search
+
+    /**
+     * @param complete the oracle answering the questions given up by the search
+     * @param maxFlips the budget of flips of an answer
+     */
+    public LocalSearchOracle(Oracle complete, long maxFlips) {
+        this.complete = complete;
+        this.maxFlips = maxFlips;
+    }
+
+    @Override
+    public ClauseSink question() {
+        forwarded = null;
+        nrLiterals = 0;
+        clauseCount = 0;
+        clauseStart = 0;
+        maxVariable = 0;
+        solved = false;
+        return this;
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses) throws IOException {
+        this.nrVariables = nrVariables;
+        this.nrClauses = nrClauses;
+        if (nrClauses > MAX_CLAUSES) {
+            forwarded = complete.question();
+            forwarded.header(nrVariables, nrClauses);
+        }
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses, long top) throws IOException {
+        forwarded = complete.question();
+        forwarded.header(nrVariables, nrClauses, top);
+    }
+
+    @Override
+    public void weight(long weight) throws IOException {
+        forwarded.weight(weight);
+    }
+
+    @Override
+    public void add(int literal) throws IOException {
+        if (forwarded != null) {
+            forwarded.add(literal);
+            return;
+        }
+
+        if (literal == 0) {
+            if (clauseCount + 1 == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * starts.length);
+            }
+            starts[clauseCount++] = clauseStart;
+            clauseStart = nrLiterals;
+        } else {
+            if (nrLiterals == literals.length) {
+                literals = Arrays.copyOf(literals, 2 * nrLiterals);
+            }
+            literals[nrLiterals++] = literal;
+            maxVariable = Math.max(maxVariable, Math.abs(literal));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (forwarded != null) {
+            forwarded.close();
+        } else if (clauseStart != nrLiterals) {
+            throw new IllegalStateException("Unterminated clause in oracle question");
+        }
+        starts[clauseCount] = nrLiterals;
+    }
+
+    @Override
+    public void ask() throws IOException, InterruptedException {
+        if (forwarded == null) {
+            solved = search();
+            if (solved) {
+                return;
+            }
+
+            // replays the recorded clauses into the question of the complete oracle, with the
+            // header given by the encoder
+            forwarded = complete.question();
+            forwarded.header(nrVariables, nrClauses);
+            for (int clause = 0; clause < clauseCount; ++clause) {
+                for (int i = starts[clause]; i < starts[clause + 1]; ++i) {
+                    forwarded.add(literals[i]);
+                }
+                forwarded.add(0);
+            }
+            forwarded.close();
+            literals = new int[1024];
+            starts = new int[256];
+        }
+        complete.setDeadline(deadline);
+        complete.ask();
+    }
+
+    /**
+     * Searches for a model of the recorded clauses within the budget of flips. The break count
+     * of every variable is kept up to date through the flips, every clause remembering the
+     * number of its true literals and the exclusive or of their variables, which is the only
+     * true variable of a clause with a single true literal.
+     *
+     * @return whether a model was found
+     */
+    private boolean search() {
+        int nrVars = (int) Math.max(nrVariables, maxVariable);
+        SplittableRandom random = new SplittableRandom(SEED);
+        nrFlips = 0;
+
+        // copies the clauses with the internal codes of their literals, without repeated
+        // literals and without the tautologies, which every assignment satisfies
+        int[] clauseLiterals = new int[nrLiterals];
+        int[] clauseStarts = new int[clauseCount + 1];
+        int nrKept = 0;
+        int size = 0;
+        int[] stamps = new int[2 * nrVars]; // last clause containing every literal, plus one
+        for (int clause = 0; clause < clauseCount; ++clause) {
+            int start = size;
+            boolean tautology = false;
+            for (int i = starts[clause]; i < starts[clause + 1]; ++i) {
+                int literal = code(literals[i]);
+                tautology |= stamps[literal ^ 1] == clause + 1;
+                if (stamps[literal] != clause + 1) {
+                    stamps[literal] = clause + 1;
+                    clauseLiterals[size++] = literal;
+                }
+            }
+            if (start == size) {
+                return false; // an empty clause can not be satisfied
+            }
+            if (tautology) {
+                size = start;
+            } else {
+                clauseStarts[++nrKept] = size;
+            }
+        }
+
+        // lists the clauses of every literal, one list after the other
+        int[] offsets = new int[2 * nrVars + 1];
+        for (int i = 0; i < size; ++i) {
+            ++offsets[clauseLiterals[i] + 1];
+        }
+        for (int literal = 0; literal < 2 * nrVars; ++literal) {
+            offsets[literal + 1] += offsets[literal];
+        }
+        int[] occurrences = new int[size];
+        int[] next = Arrays.copyOf(offsets, 2 * nrVars);
+        for (int clause = 0; clause < nrKept; ++clause) {
+            for (int i = clauseStarts[clause]; i < clauseStarts[clause + 1]; ++i) {
+                occurrences[next[clauseLiterals[i]]++] = clause;
+            }
+        }
+
+        // starts from a random assignment, counting the true literals of every clause, listing
+        // the falsified clauses and counting the clauses every variable alone satisfies
+        boolean[] values = new boolean[nrVars];
+        for (int variable = 0; variable < nrVars; ++variable) {
+            values[variable] = random.nextBoolean();
+        }
+        int[] nrTrue = new int[nrKept];
+        int[] trueVariables = new int[nrKept]; // exclusive or of the true variables of a clause
+        int[] breaks = new int[nrVars];
+        int[] falsified = new int[nrKept];
+        int[] positions = new int[nrKept]; // position of every falsified clause in the list
+        int nrFalsified = 0;
+        for (int clause = 0; clause < nrKept; ++clause) {
+            for (int i = clauseStarts[clause]; i < clauseStarts[clause + 1]; ++i) {
+                int literal = clauseLiterals[i];
+                if (values[literal >> 1] == ((literal & 1) == 0)) {
+                    ++nrTrue[clause];
+                    trueVariables[clause] ^= literal >> 1;
+                }
+            }
+            if (nrTrue[clause] == 0) {
+                positions[clause] = nrFalsified;
+                falsified[nrFalsified++] = clause;
+            } else if (nrTrue[clause] == 1) {
+                ++breaks[trueVariables[clause]];
+            }
+        }
+
+        double[] weights = new double[16];
+        while (nrFalsified > 0) {
+            if (nrFlips == maxFlips || nrFlips % CHECK_INTERVAL == 0 && nrFlips > 0
+                    && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted())) {
+                return false;
+            }
+
+            // weighs the variables of a random falsified clause by their break counts
+            int clause = falsified[random.nextInt(nrFalsified)];
+            int start = clauseStarts[clause];
+            int length = clauseStarts[clause + 1] - start;
+            if (length > weights.length) {
+                weights = new double[Math.max(length, 2 * weights.length)];
+            }
+            double sum = 0;
+            for (int i = 0; i < length; ++i) {
+                weights[i] = WEIGHTS[Math.min(breaks[clauseLiterals[start + i] >> 1],
+                        WEIGHTS.length - 1)];
+                sum += weights[i];
+            }
+            double chosen = random.nextDouble() * sum;
+            int index = 0;
+            while (index < length - 1 && (chosen -= weights[index]) >= 0) {
+                ++index;
+            }
+
+            // flips the chosen variable, its literal true so far becoming false
+            int variable = clauseLiterals[start + index] >> 1;
+            int oldLiteral = 2 * variable + (values[variable] ? 0 : 1);
+            for (int j = offsets[oldLiteral]; j < offsets[oldLiteral + 1]; ++j) {
+                int broken = occurrences[j];
+                trueVariables[broken] ^= variable;
+                if (--nrTrue[broken] == 0) {
+                    --breaks[variable];
+                    positions[broken] = nrFalsified;
+                    falsified[nrFalsified++] = broken;
+                } else if (nrTrue[broken] == 1) {
+                    ++breaks[trueVariables[broken]];
+                }
+            }
+            values[variable] = !values[variable];
+            int newLiteral = oldLiteral ^ 1;
+            for (int j = offsets[newLiteral]; j < offsets[newLiteral + 1]; ++j) {
+                int made = occurrences[j];
+                if (nrTrue[made] == 0) {
+                    ++breaks[variable];
+                    // moves the last falsified clause in place of the satisfied one
+                    int last = falsified[--nrFalsified];
+                    falsified[positions[made]] = last;
+                    positions[last] = positions[made];
+                } else if (nrTrue[made] == 1) {
+                    --breaks[trueVariables[made]];
+                }
+                ++nrTrue[made];
+                trueVariables[made] ^= variable;
+            }
+            ++nrFlips;
+        }
+
+        model = new int[nrVars];
+        for (int variable = 0; variable < nrVars; ++variable) {
+            model[variable] = values[variable] ? variable + 1 : -(variable + 1);
+        }
+        return true;
+    }
+
+    /**
+     * @param literal a literal in the DIMACS convention
+     * @return the internal code of the literal
+     */
+    private static int code(int literal) {
+        return 2 * (Math.abs(literal) - 1) + (literal < 0 ? 1 : 0);
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public boolean timedOut() {
+        return !solved && complete.timedOut();
+    }
+
+    @Override
+    public void abandon() {
+        complete.abandon();
+    }
+
+    @Override
+    public boolean isSatisfiable() {
+        return solved || complete.isSatisfiable();
+    }
+
+    @Override
+    public int[] getModel() {
+        return solved ? model : complete.getModel();
+    }
+}
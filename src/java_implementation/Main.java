@@ -2,13 +2,41 @@
 // Author: Matei Simtinică
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 class Main {
     public static void main(String[] args) throws IOException, InterruptedException {
-        Task task = null;
+        // solves all the jobs of a manifest in this JVM when the batch mode is asked for
+        if (args.length >= 2 && args[0].equals("batch")) {
+            if (!new Batch(parseOptions(args, 2).jobs).run(args[1], args, 2)) {
+                System.exit(-1);
+            }
+            return;
+        }
+        // answers the requests sent over a local socket until the programme is stopped
+        if (args.length >= 2 && args[0].equals("serve")) {
+            new Daemon(Arrays.copyOfRange(args, 2, args.length), parseOptions(args, 2).jobs)
+                    .serve(args[1]);
+            return;
+        }
+
+        // writes a generated problem input instead of solving one
+        if (args.length >= 3 && args[0].equals("generate")) {
+            try {
+                new Generator(args[1], args, 3).generate(args[2]);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(-1);
+            }
+            return;
+        }
 
         if (args.length < 5) {
-            System.err.println("Usage: ./main <task> <input_file> <SAT_input_file> <SAT_output_file> <output_file>\n");
+            System.err.println("Usage: ./main <task> <input_file> <SAT_input_file> <SAT_output_file> <output_file> [--option=value ...]\n"
+                    + "       ./main batch <manifest_file> [--option=value ...]\n"
+                    + "       ./main serve <socket_path|port> [--option=value ...]\n"
+                    + "       ./main generate <model> <output_file> [--option=value ...]\n");
             System.exit(-1);
         }
 
@@ -18,21 +46,84 @@ class Main {
         String satOutput = args[3];
         String output = args[4];
 
+        if (factory(taskNumber) == null) {
+            System.err.println("Not a valid task");
+            System.exit(-1);
+        }
+
+        // extracts the optional settings given after the mandatory arguments
+        Options options = parseOptions(args, 5);
+
+        Task task = createTask(taskNumber, options);
+        task.addFiles(input, satInput, satOutput, output);
+        task.addOptions(options);
+        try {
+            task.solve();
+        } catch (IOException e) {
+            // a failed oracle stops the run, unlike a job of a batch or a request of the daemon
+            System.err.println(e.getMessage());
+            System.exit(-1);
+        }
+        task.writeMetrics(taskNumber);
+    }
+
+    /**
+     * Extracts the optional settings, stopping the programme if one of them is invalid.
+     *
+     * @param args  the command line arguments
+     * @param first the index of the first optional argument
+     * @return the settings of the run
+     */
+    private static Options parseOptions(String[] args, int first) {
+        try {
+            return Options.parse(args, first);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    /**
+     * @param taskNumber the name of a task
+     * @return the constructor of the task, or null if there is no task with the given name
+     */
+    static Supplier<Task> factory(String taskNumber) {
         switch (taskNumber) {
             case "task1":
-                task = new Task1(); break;
+                return Task1::new;
             case "task2":
-                task = new Task2(); break;
+                return Task2::new;
             case "task3":
-                task = new Task3(); break;
+                return Task3::new;
             case "bonus":
-                task = new BonusTask(); break;
+                return BonusTask::new;
             default :
-                System.err.println("Not a valid task");
-                System.exit(-1);
+                return null;
         }
+    }
 
-        task.addFiles(input, satInput, satOutput, output);
-        task.solve();
+    /**
+     * Creates the task with the given name, racing a portfolio of configurations, splitting the
+     * graph into its connected components and answering from the cache when it is asked for. The
+     * deadline of an optimisation task is set from the budget of the settings.
+     *
+     * @param taskNumber the name of a valid task
+     * @param options    the settings of the run
+     * @return the task solving the problem
+     */
+    static Task createTask(String taskNumber, Options options) {
+        Supplier<Task> factory = factory(taskNumber);
+        Supplier<Task> raced = options.portfolio == null ? factory
+                : () -> new PortfolioTask(taskNumber, factory);
+        Supplier<Task> solver = options.components
+                ? () -> new ComponentTask(taskNumber, raced) : raced;
+        Task task = options.cache.equals("none") ? solver.get()
+                : new CachedTask(taskNumber, solver);
+        // the budget of the optimisation tasks starts with their creation
+        if (options.deadline > 0 && (taskNumber.equals("task3") || taskNumber.equals("bonus"))) {
+            task.deadline = System.nanoTime() + options.deadline * 1_000_000L;
+        }
+        return task;
     }
 }
@@ -0,0 +1,303 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Oracle backend answering Weighted Partial Max-SAT questions inside the JVM, through the
+ * core-guided OLL algorithm (the one of the RC2 solver) run over the incremental CDCL solver:
+ * every soft clause gets an assumption literal, true when the clause holds, and the solver is
+ * asked to satisfy all the assumptions. Each refutation returns a core of assumptions which can
+ * not hold together, whose smallest weight is added to the lower bound and subtracted from the
+ * weights of its assumptions; a totalizer then counts the falsified assumptions of the core,
+ * "at most one of them is falsified" becoming a new assumption with that weight, relaxed to
+ * "at most two" once it appears in a core itself, and so on. The first satisfiable answer with
+ * all the assumptions is an optimal model.
+ * The assumptions are stratified by weight: only the heaviest ones are asked first, lighter
+ * ones being added whenever the current ones are satisfied, which suits the exponential weights
+ * of the bonus task. Every model found improves the upper bound, so a search stopped by its time
+ * limit still answers with the best model found so far.
+ * CNF questions have only hard clauses, being answered like the CDCL oracle does.
+ */
+public class MaxSatOracle implements Oracle, ClauseSink {
+    private final long timeout; // time limit of an answer in milliseconds, or 0 for none
+    private long deadline = Long.MAX_VALUE; // System.nanoTime() value ending every answer
+    private CdclOracle sat; // incremental solver of the hard clauses and the totalizers
+    private ClauseSink hard; // sink adding hard clauses to the solver
+    private long top; // weight of the hard clauses, or 0 for a CNF question
+    private long weight; // weight of the clause being added
+    private int[] clause = new int[16]; // literals of the clause being added
+    private int clauseSize;
+    private int nrVariables; // number of variables of the question
+    private final List<int[]> softClauses = new ArrayList<>(); // soft clauses of the question
+    private final List<Long> softWeights = new ArrayList<>(); // weights of the soft clauses
+    private long softSum; // sum of the weights of the soft clauses
+    private boolean satisfiable; // whether a model satisfying the hard clauses was found
+    private int[] model = new int[0]; // best model found, restricted to the question variables
+
+    volatile long lowerBound; // cost no model can go below, raised by every core
+    volatile long upperBound; // cost of the best model found so far
+    volatile boolean optimal; // whether the best model is proved optimal
+    int nrCores; // number of cores found by the last answer
+
+    /**
+     * @param timeout the time limit of an answer in milliseconds, or 0 for none
+     */
+    public MaxSatOracle(long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public ClauseSink question() throws IOException {
+        sat = new CdclOracle();
+        hard = sat.question();
+        top = 0;
+        weight = 0;
+        clauseSize = 0;
+        nrVariables = 0;
+        softClauses.clear();
+        softWeights.clear();
+        softSum = 0;
+        return this;
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses) throws IOException {
+        this.nrVariables = Math.toIntExact(nrVariables);
+        hard.header(nrVariables, nrClauses);
+    }
+
+    @Override
+    public void header(long nrVariables, long nrClauses, long top) throws IOException {
+        if (top <= 0) {
+            throw new IllegalArgumentException("Invalid weight of the hard clauses: " + top);
+        }
+        this.top = top;
+        header(nrVariables, nrClauses);
+    }
+
+    @Override
+    public void weight(long weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Invalid clause weight: " + weight);
+        }
+        this.weight = weight;
+    }
+
+    @Override
+    public void add(int literal) throws IOException {
+        if (literal != 0) {
+            if (clauseSize == clause.length) {
+                clause = Arrays.copyOf(clause, 2 * clauseSize);
+            }
+            clause[clauseSize++] = literal;
+            nrVariables = Math.max(nrVariables, Math.abs(literal));
+            return;
+        }
+
+        if (top > 0 && weight < top) {
+            // the soft clauses are kept until the question is asked, the fresh variables
+            // following all the variables of the question, and their costs summing up in 64
+            // bits
+            try {
+                softSum = Math.addExact(softSum, weight);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("The weights of the soft clauses overflow");
+            }
+            softClauses.add(Arrays.copyOf(clause, clauseSize));
+            softWeights.add(weight);
+        } else {
+            for (int i = 0; i < clauseSize; ++i) {
+                hard.add(clause[i]);
+            }
+            hard.add(0);
+        }
+        clauseSize = 0;
+        weight = top;
+    }
+
+    @Override
+    public void close() {
+        if (clauseSize != 0) {
+            throw new IllegalStateException("Unterminated clause in oracle question");
+        }
+    }
+
+    @Override
+    public void ask() throws IOException {
+        long start = System.nanoTime();
+        // the answer ends with its own time limit or with the deadline, whichever comes first
+        sat.setDeadline(Math.min(deadline,
+                timeout > 0 ? start + timeout * 1_000_000 : Long.MAX_VALUE));
+        satisfiable = false;
+        optimal = false;
+        model = new int[0];
+        nrCores = 0;
+
+        // every soft clause gets the literal assumed when it has to hold: the literal itself
+        // for a unit clause, a fresh variable implying the clause otherwise
+        int nextVariable = nrVariables + 1;
+        Map<Integer, Long> weights = new LinkedHashMap<>(); // weight of every assumption
+        lowerBound = 0;
+        upperBound = 0;
+        for (int i = 0; i < softClauses.size(); ++i) {
+            int[] soft = softClauses.get(i);
+            long softWeight = softWeights.get(i);
+            upperBound += softWeight;
+            if (soft.length == 0) {
+                lowerBound += softWeight;
+                continue;
+            }
+            int assumption = soft[0];
+            if (soft.length > 1) {
+                assumption = nextVariable++;
+                for (int literal : soft) {
+                    hard.add(literal);
+                }
+                hard.add(-assumption);
+                hard.add(0);
+            }
+            weights.merge(assumption, softWeight, Long::sum);
+        }
+
+        // the hard clauses alone give the first model, and the first upper bound
+        sat.ask(new int[0]);
+        if (!sat.isSatisfiable()) {
+            return;
+        }
+        improve(sat.getModel());
+
+        // outputs of the totalizers of the cores, and the totalizer and bound of every
+        // assumption standing for one of these outputs
+        List<int[]> outputs = new ArrayList<>();
+        Map<Integer, int[]> sums = new HashMap<>();
+        long threshold = 0; // smallest weight of the assumptions asked
+        for (long assumptionWeight : weights.values()) {
+            threshold = Math.max(threshold, assumptionWeight);
+        }
+
+        while (lowerBound < upperBound) {
+            // asks the assumptions of the current stratum
+            List<Integer> stratum = new ArrayList<>();
+            long next = 0; // heaviest weight below the stratum
+            for (Map.Entry<Integer, Long> entry : weights.entrySet()) {
+                if (entry.getValue() >= threshold) {
+                    stratum.add(entry.getKey());
+                } else {
+                    next = Math.max(next, entry.getValue());
+                }
+            }
+            sat.ask(stratum.stream().mapToInt(Integer::intValue).toArray());
+            if (sat.timedOut()) {
+                return;
+            }
+
+            if (sat.isSatisfiable()) {
+                improve(sat.getModel());
+                // moves to the next stratum, the model being optimal once every assumption holds
+                if (next == 0) {
+                    lowerBound = upperBound;
+                    break;
+                }
+                threshold = next;
+                continue;
+            }
+
+            int[] core = sat.getCore();
+            if (core.length == 0) {
+                return; // not reached, the hard clauses being satisfiable
+            }
+            ++nrCores;
+            long coreWeight = Long.MAX_VALUE;
+            for (int assumption : core) {
+                coreWeight = Math.min(coreWeight, weights.get(assumption));
+            }
+            lowerBound += coreWeight;
+
+            // lowers the weights of the core, relaxing the bound of its totalizer outputs
+            for (int assumption : core) {
+                long remaining = weights.get(assumption) - coreWeight;
+                if (remaining == 0) {
+                    weights.remove(assumption);
+                } else {
+                    weights.put(assumption, remaining);
+                }
+                int[] sum = sums.get(assumption);
+                if (sum != null && sum[1] + 1 < outputs.get(sum[0]).length) {
+                    int relaxed = -outputs.get(sum[0])[sum[1] + 1];
+                    sums.put(relaxed, new int[] {sum[0], sum[1] + 1});
+                    weights.merge(relaxed, coreWeight, Long::sum);
+                }
+            }
+
+            if (core.length == 1) {
+                // a single assumption can never hold
+                hard.add(-core[0]);
+                hard.add(0);
+            } else {
+                // counts the falsified assumptions of the core, at least one of them being
+                // falsified, and assumes that no other one is
+                int[] falsified = new int[core.length];
+                for (int i = 0; i < core.length; ++i) {
+                    falsified[i] = -core[i];
+                }
+                Totalizer totalizer = new Totalizer(hard, nextVariable, 0, false, true);
+                int[] counted = totalizer.encode(falsified, core.length, core.length);
+                nextVariable = totalizer.nextVariable;
+                outputs.add(counted);
+                sums.put(-counted[1], new int[] {outputs.size() - 1, 1});
+                weights.merge(-counted[1], coreWeight, Long::sum);
+            }
+        }
+        optimal = true;
+    }
+
+    /**
+     * Keeps the given model if it falsifies soft clauses of a smaller total weight than the
+     * best model found so far.
+     *
+     * @param candidate the model found by the solver
+     */
+    private void improve(int[] candidate) {
+        long cost = 0;
+        for (int i = 0; i < softClauses.size(); ++i) {
+            boolean satisfied = false;
+            for (int literal : softClauses.get(i)) {
+                satisfied |= candidate[Math.abs(literal) - 1] == literal;
+            }
+            if (!satisfied) {
+                cost += softWeights.get(i);
+            }
+        }
+        if (!satisfiable || cost < upperBound) {
+            upperBound = cost;
+            model = Arrays.copyOf(candidate, nrVariables);
+        }
+        satisfiable = true;
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public boolean timedOut() {
+        return sat != null && sat.timedOut();
+    }
+
+    @Override
+    public boolean isSatisfiable() {
+        return satisfiable;
+    }
+
+    @Override
+    public int[] getModel() {
+        return model;
+    }
+}
@@ -0,0 +1,231 @@
+// Copyright 2020
+
+/**
+ * Optional settings of a run, given on the command line after the five mandatory arguments in
+ * the "--name=value" form. Every setting has a default that keeps the original behaviour of the
+ * tasks, so the usual invocation of the programme does not change.
+ */
+public class Options implements Cloneable {
+    // backend used for answering the questions addressed to the oracle ("process", "stream",
+    // "cdcl" or "maxsat")
+    String oracle = "process";
+    // encoding of the at-most-one constraints ("pairwise", "sequential", "commander" or
+    // "product")
+    String amo = "pairwise";
+    // clauses breaking the symmetry of the spies of task1 ("none", "clique" or "precedence")
+    String symmetry = "none";
+    // encoding of the clique of task2 ("slots", with "N * K" variables, or "cardinality", with
+    // "N" variables and a totalizer)
+    String clique = "slots";
+    // encoding of the weighted question of the bonus task ("slots", with "N * K" variables, or
+    // "compact", with a variable and a soft unit clause for every family)
+    String cover = "slots";
+    // whether task3 keeps a single in-JVM solver for all its questions, moving between the sizes
+    // of the clique through assumptions
+    boolean incremental = false;
+    // order of the sizes of the clique asked by task3 ("linear", "descending", "ascending" or
+    // "binary"), all but the first one being bounded by greedy heuristics
+    String search = "linear";
+    // how the header of a question written to a file is produced ("upfront", from the counts
+    // computed by the encoders, or "backfill", from the counts of the written clauses)
+    String header = "upfront";
+    // whether task3 and the bonus task shrink their vertex cover instance through reduction
+    // rules before encoding it, lifting the cover of the kernel back to the original families
+    boolean kernel = false;
+    // budget of flips of the probSAT local search trying the CNF questions before the oracle,
+    // or 0 for none
+    int localsearch = 0;
+    // whether the graph of relations is split into its connected components, solved as separate
+    // instances on the threads of the run
+    boolean components = false;
+    // number of threads generating the clauses of the questions of task2 and of the bonus task,
+    // or solving the connected components when the graph is split
+    int threads = 1;
+    // number of jobs of a batch manifest solved at once, each on a thread of its own
+    int jobs = 1;
+    // time limit in milliseconds of an answer of the in-JVM Max-SAT oracle, which then answers
+    // with the best model found so far, or 0 for none
+    int timeout = 0;
+    // wall-clock budget in milliseconds of task3 and of the bonus task, which then give up the
+    // oracle and answer with the best cover found so far, or 0 for none
+    int deadline = 0;
+    // tiers of the cache of the answers, keyed by a hash of the problem ("none", "memory", kept
+    // by the JVM, or "disk", also kept in the cache directory across runs)
+    String cache = "none";
+    // directory holding the answers of the disk tier of the cache
+    String cachedir = ".sat_cache";
+    // file receiving the JSON summary of the metrics of the run ("-" for the standard error), or
+    // null for none
+    String metrics = null;
+    // configurations raced against each other, separated by semicolons, each of them made of
+    // settings separated by commas ("auto" for the ones suited to the task), or null for none
+    String portfolio = null;
+    // whether statistics of the run are printed to the standard error
+    boolean stats = false;
+
+    /**
+     * Builds the settings from the command line arguments starting at the given index.
+     *
+     * @param args  the command line arguments
+     * @param first the index of the first optional argument
+     * @return the settings of the run
+     * @throws IllegalArgumentException if an argument is unknown or malformed
+     */
+    public static Options parse(String[] args, int first) {
+        return new Options().apply(args, first);
+    }
+
+    /**
+     * Changes the settings given by the command line arguments starting at the given index,
+     * keeping the other ones.
+     *
+     * @param args  the command line arguments
+     * @param first the index of the first optional argument
+     * @return these settings
+     * @throws IllegalArgumentException if an argument is unknown or malformed
+     */
+    Options apply(String[] args, int first) {
+        for (int i = first; i < args.length; ++i) {
+            // splits the argument into the name of the setting and its value
+            int separator = args[i].indexOf('=');
+            if (!args[i].startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Malformed option: " + args[i]);
+            }
+            String name = args[i].substring(2, separator);
+            String value = args[i].substring(separator + 1);
+
+            switch (name) {
+                case "oracle":
+                    oracle = oneOf(name, value, "process", "stream", "cdcl", "maxsat"); break;
+                case "amo":
+                    amo = oneOf(name, value, "pairwise", "sequential", "commander", "product");
+                    break;
+                case "symmetry":
+                    symmetry = oneOf(name, value, "none", "clique", "precedence"); break;
+                case "clique":
+                    clique = oneOf(name, value, "slots", "cardinality"); break;
+                case "cover":
+                    cover = oneOf(name, value, "slots", "compact"); break;
+                case "incremental":
+                    incremental = oneOf(name, value, "true", "false").equals("true"); break;
+                case "search":
+                    search = oneOf(name, value, "linear", "descending", "ascending", "binary");
+                    break;
+                case "header":
+                    header = oneOf(name, value, "upfront", "backfill"); break;
+                case "kernel":
+                    kernel = oneOf(name, value, "true", "false").equals("true"); break;
+                case "localsearch":
+                    localsearch = positive(name, value); break;
+                case "components":
+                    components = oneOf(name, value, "true", "false").equals("true"); break;
+                case "threads":
+                    threads = positive(name, value); break;
+                case "jobs":
+                    jobs = positive(name, value); break;
+                case "timeout":
+                    timeout = positive(name, value); break;
+                case "deadline":
+                    deadline = positive(name, value); break;
+                case "cache":
+                    cache = oneOf(name, value, "none", "memory", "disk"); break;
+                case "cachedir":
+                    if (value.isEmpty()) {
+                        throw new IllegalArgumentException("Invalid value for --" + name + ": "
+                                + value);
+                    }
+                    cachedir = value;
+                    break;
+                case "metrics":
+                    if (value.isEmpty()) {
+                        throw new IllegalArgumentException("Invalid value for --" + name + ": "
+                                + value);
+                    }
+                    metrics = value;
+                    break;
+                case "portfolio":
+                    // every configuration is checked on its own
+                    if (!value.equals("auto")) {
+                        for (String configuration : value.split(";", -1)) {
+                            copy().apply(configuration(configuration), 0);
+                        }
+                    }
+                    portfolio = value;
+                    break;
+                case "stats":
+                    stats = oneOf(name, value, "true", "false").equals("true"); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Converts a configuration of a portfolio, made of settings separated by commas (such as
+     * "amo=sequential,symmetry=precedence"), to command line arguments.
+     *
+     * @param configuration the settings of the configuration
+     * @return the settings in the "--name=value" form
+     */
+    static String[] configuration(String configuration) {
+        if (configuration.trim().isEmpty()) {
+            return new String[0];
+        }
+        String[] settings = configuration.trim().split(",");
+        for (int i = 0; i < settings.length; ++i) {
+            settings[i] = "--" + settings[i].trim();
+        }
+        return settings;
+    }
+
+    /**
+     * @return a copy of the settings, which may be changed for a part of the run
+     */
+    public Options copy() {
+        try {
+            return (Options) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Verifies that the value of a setting is a positive integer.
+     *
+     * @param name  the name of the setting
+     * @param value the value given on the command line
+     * @return the integer value
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    static int positive(String name, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below, like a non positive value
+        }
+        throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+
+    /**
+     * Verifies that the value of a setting is one of the accepted ones.
+     *
+     * @param name     the name of the setting
+     * @param value    the value given on the command line
+     * @param accepted the accepted values
+     * @return the given value
+     * @throws IllegalArgumentException if the value is not accepted
+     */
+    static String oneOf(String name, String value, String... accepted) {
+        for (String candidate : accepted) {
+            if (candidate.equals(value)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright 2020
+
+import java.io.IOException;
+
+/**
+ * Common interface of the SAT oracles the tasks may query. A question is formulated by adding
+ * clauses to the sink returned by question(), the oracle is consulted through ask() and the
+ * answer is afterwards available to the deciphering step of the task.
+ */
+public interface Oracle {
+    /**
+     * Starts a new question addressed to the oracle.
+     *
+     * @return the sink receiving the clauses of the question
+     * @throws IOException input/output exception to be thrown
+     */
+    ClauseSink question() throws IOException;
+
+    /**
+     * Asks the oracle for an answer to the formulated question.
+     *
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    void ask() throws IOException, InterruptedException;
+
+    /**
+     * @return whether the oracle found the question satisfiable
+     */
+    boolean isSatisfiable();
+
+    /**
+     * Returns the interpretation found by the oracle, in the format of its output file: the
+     * element at index "i" is "i + 1" if the variable is true and "-(i + 1)" otherwise.
+     *
+     * @return the state of the variables of the question
+     */
+    int[] getModel();
+
+    /**
+     * Limits the time of the following answers: an answer still missing at the deadline is
+     * given up, the oracle keeping only the model it found before, if any.
+     *
+     * @param deadline the System.nanoTime() value after which the oracle gives up
+     */
+    default void setDeadline(long deadline) {}
+
+    /**
+     * @return whether the last answer was given up because of the deadline
+     */
+    default boolean timedOut() {
+        return false;
+    }
+
+    /**
+     * Gives up the current question after a failure of the task, releasing what the oracle
+     * acquired for it (such as a process started when the question was opened). Nothing is
+     * held between the questions of the in-JVM oracles, so they do nothing by default.
+     */
+    default void abandon() {}
+
+    /**
+     * Creates the oracle backend selected for the given task. The in-JVM CDCL solver only
+     * answers CNF questions, so the weighted question of the bonus task goes to the Max-SAT
+     * oracle built on it instead.
+     *
+     * @param task the task querying the oracle
+     * @return the oracle answering the questions of the task
+     */
+    static Oracle create(Task task) {
+        switch (task.options.oracle) {
+            case "cdcl":
+                return task instanceof BonusTask ? new MaxSatOracle(task.options.timeout)
+                        : new CdclOracle();
+            case "maxsat":
+                return new MaxSatOracle(task.options.timeout);
+            case "stream":
+                return new StreamingOracle();
+            default:
+                return new ProcessOracle(task.oracleInFilename, task.oracleOutFilename,
+                        task.options.header.equals("backfill"));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+// Copyright 2020
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates a block of clauses whose rows are independent of each other (such as the at-most-one
+ * constraints of every clique node, or the conflicts of every family) on several threads. The
+ * rows are split in chunks, every chunk being formatted by a worker of a fork/join pool into its
+ * own off-heap buffers; the buffers are then handed to the destination writer in the order of
+ * the rows, through gathering writes, so the question is byte for byte the one written by a
+ * single thread. The chunks are processed in waves, so only a part of the block is kept in
+ * memory at a time.
+ * A single thread, or a destination which is not a DIMACS writer, makes the rows be written
+ * directly, in order.
+ */
+public class ParallelEncoder implements Closeable {
+    // number of chunks every worker gets, on average, for balancing rows of different lengths
+    private static final int CHUNKS_PER_THREAD = 64;
+    // number of chunks formatted before being written, for every worker
+    private static final int WAVE_PER_THREAD = 4;
+    private static final int CHUNK_WRITER_SIZE = 1 << 16; // buffer of the writer of a chunk
+    private static final int OFF_HEAP_SIZE = 1 << 20; // capacity of an off-heap buffer
+
+    /**
+     * Block of clauses made of independent rows.
+     */
+    interface Block {
+        /**
+         * Writes the clauses of a range of rows, in order.
+         *
+         * @param sink the destination of the clauses
+         * @param from the first row of the range
+         * @param to   the row following the last one of the range
+         * @throws IOException input/output exception to be thrown
+         */
+        void encode(ClauseSink sink, int from, int to) throws IOException;
+    }
+
+    final int nrThreads; // number of workers formatting the chunks
+    private ForkJoinPool pool; // workers of the encoder, created with the first parallel block
+    // off-heap buffers already written, which are reused by the following chunks
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param nrThreads the number of threads generating the clauses
+     */
+    public ParallelEncoder(int nrThreads) {
+        this.nrThreads = nrThreads;
+    }
+
+    /**
+     * Writes the clauses of all the rows of a block.
+     *
+     * @param writer the destination of the clauses
+     * @param from   the first row of the block
+     * @param to     the row following the last one of the block
+     * @param block  the block of clauses
+     * @throws IOException input/output exception to be thrown
+     */
+    public void encode(ClauseSink writer, int from, int to, Block block) throws IOException {
+        if (nrThreads <= 1 || !(writer instanceof DimacsWriter) || to - from < 2) {
+            block.encode(writer, from, to);
+            return;
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(nrThreads);
+        }
+
+        DimacsWriter destination = (DimacsWriter) writer;
+        int chunkSize = Math.max(1, (to - from) / (CHUNKS_PER_THREAD * nrThreads));
+        int waveSize = WAVE_PER_THREAD * nrThreads;
+
+        for (int waveStart = from; waveStart < to; ) {
+            // formats the chunks of the wave in parallel
+            List<Chunk> chunks = new ArrayList<>();
+            for (int i = 0; i < waveSize && waveStart < to; ++i) {
+                int chunkEnd = (int) Math.min(to, (long) waveStart + chunkSize);
+                chunks.add(new Chunk(block, waveStart, chunkEnd));
+                waveStart = chunkEnd;
+            }
+            try {
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(chunks);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // writes the chunks in the order of their rows, then recycles their buffers
+            for (Chunk chunk : chunks) {
+                destination.append(chunk.buffers.toArray(new ByteBuffer[0]),
+                        chunk.writer.nrClauses, chunk.writer.maxVariable);
+                for (ByteBuffer buffer : chunk.buffers) {
+                    freeBuffers.add(buffer.clear());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Range of rows formatted by a worker into off-heap buffers, acting as the channel of the
+     * DIMACS writer of the range.
+     */
+    private class Chunk extends RecursiveAction implements WritableByteChannel {
+        private static final long serialVersionUID = 1L;
+
+        private final Block block; // block the rows belong to
+        private final int from; // first row of the chunk
+        private final int to; // row following the last one of the chunk
+        private final List<ByteBuffer> buffers = new ArrayList<>(); // formatted clauses
+        private DimacsWriter writer; // writer formatting the clauses of the chunk
+
+        Chunk(Block block, int from, int to) {
+            this.block = block;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                writer = new DimacsWriter(this, false, CHUNK_WRITER_SIZE);
+                block.encode(writer, from, to);
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // prepares the buffers for being read
+            for (ByteBuffer buffer : buffers) {
+                buffer.flip();
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            while (source.hasRemaining()) {
+                // continues in the last buffer, or takes a new one once it is full
+                ByteBuffer buffer = buffers.isEmpty() ? null : buffers.get(buffers.size() - 1);
+                if (buffer == null || !buffer.hasRemaining()) {
+                    buffer = freeBuffers.poll();
+                    if (buffer == null) {
+                        buffer = ByteBuffer.allocateDirect(OFF_HEAP_SIZE);
+                    }
+                    buffers.add(buffer);
+                }
+                int count = Math.min(buffer.remaining(), source.remaining());
+                ByteBuffer slice = source.duplicate();
+                slice.limit(slice.position() + count);
+                buffer.put(slice);
+                source.position(source.position() + count);
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // the buffers are kept until they are written to the destination
+        }
+    }
+}
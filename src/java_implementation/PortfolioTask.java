@@ -0,0 +1,132 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Task racing several configurations of the same task against each other, since the fastest
+ * encoding or oracle depends on the instance. Every configuration changes some settings of the
+ * run and is solved on a thread of its own, with its own oracle and output files. The first
+ * configuration to write its answer wins: the other ones are cancelled by interrupting their
+ * threads, which kills their oracle processes, stops their in-JVM searches and closes the files
+ * they are writing, and the winner is reported to the standard error.
+ */
+public class PortfolioTask extends Task {
+    // configurations raced by "--portfolio=auto", the settings of the run being kept otherwise
+    private static final Map<String, String> AUTO = Map.of(
+            "task1", "amo=pairwise;amo=sequential,symmetry=precedence;"
+                    + "oracle=cdcl,amo=sequential,symmetry=clique",
+            "task2", "clique=slots;clique=cardinality;oracle=cdcl,clique=cardinality",
+            "task3", "search=linear;search=binary;oracle=cdcl,incremental=true,search=binary",
+            "bonus", "cover=slots;cover=compact;oracle=maxsat,cover=compact");
+
+    private final String taskName; // name of the raced task
+    private final Supplier<Task> factory; // creates the task solving every configuration
+
+    String[] configurations; // settings of every configuration, separated by commas
+    int winner = -1; // configuration which answered first, or -1 if none did
+
+    /**
+     * @param taskName the name of the raced task
+     * @param factory  the constructor of the task solving every configuration
+     */
+    public PortfolioTask(String taskName, Supplier<Task> factory) {
+        this.taskName = taskName;
+        this.factory = factory;
+    }
+
+    @Override
+    public void solve() throws IOException, InterruptedException {
+        configurations = (options.portfolio.equals("auto") ? AUTO.get(taskName)
+                : options.portfolio).split(";", -1);
+        long start = System.nanoTime();
+
+        // every finished configuration queues its index, or "-1 - index" if it failed
+        BlockingQueue<Integer> finished = new LinkedBlockingQueue<>();
+        Exception[] failures = new Exception[configurations.length];
+        Thread[] racers = new Thread[configurations.length];
+        for (int i = 0; i < configurations.length; ++i) {
+            Options settings = options.copy().apply(Options.configuration(configurations[i]), 0);
+            settings.portfolio = null;
+            Task task = factory.get();
+            String suffix = "_p" + i;
+            task.addFiles(inFilename, oracleInFilename + suffix, oracleOutFilename + suffix,
+                    outFilename + suffix);
+            task.addOptions(settings);
+            task.metrics = metrics;
+            task.deadline = deadline;
+
+            int index = i;
+            racers[i] = new Thread(() -> {
+                try {
+                    task.solve();
+                    finished.add(index);
+                } catch (Exception e) {
+                    failures[index] = e;
+                    finished.add(-1 - index);
+                }
+            }, "portfolio-" + i);
+            racers[i].setDaemon(true);
+            racers[i].start();
+        }
+
+        try {
+            for (int i = 0; i < configurations.length && winner < 0; ++i) {
+                int index = finished.take();
+                if (index >= 0) {
+                    winner = index;
+                }
+            }
+        } finally {
+            // cancels the remaining configurations, waiting for them to stop writing their files
+            for (Thread racer : racers) {
+                racer.interrupt();
+            }
+            for (Thread racer : racers) {
+                racer.join();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (winner >= 0) {
+            Files.move(Paths.get(outFilename + "_p" + winner), Paths.get(outFilename),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (int i = 0; i < configurations.length; ++i) {
+            String suffix = "_p" + i;
+            for (String filename : Arrays.asList(outFilename + suffix, oracleInFilename + suffix,
+                    oracleOutFilename + suffix, oracleInFilename + suffix + "_t2",
+                    outFilename + suffix + "_t2")) {
+                Files.deleteIfExists(Paths.get(filename));
+            }
+        }
+
+        if (winner < 0) {
+            IOException error = new IOException("Every configuration of the portfolio failed");
+            for (Exception failure : failures) {
+                error.addSuppressed(failure);
+            }
+            throw error;
+        }
+        System.err.printf("portfolio: %s won by configuration %d (%s) in %.3f s, %d cancelled%n",
+                taskName, winner, configurations[winner].isEmpty() ? "settings of the run"
+                        : configurations[winner], elapsed / 1e9, configurations.length - 1);
+    }
+
+    @Override
+    public void readProblemData() {
+        // the problem is read by every configuration
+    }
+
+    @Override
+    public void writeAnswer() {
+        // the answer is the one written by the winning configuration
+    }
+}
@@ -0,0 +1,115 @@
+// Copyright 2020
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the integers of a problem input file by memory mapping it and scanning the ASCII digits
+ * straight from the mapped bytes, without creating any string or boxed number. The integers may
+ * be separated by any whitespace. Files larger than a mapping window are mapped one window at a
+ * time.
+ */
+public class ProblemReader implements Closeable {
+    private static final long WINDOW_SIZE = 1L << 30; // number of bytes mapped at a time
+
+    private final FileChannel channel; // channel of the input file
+    private final long fileSize; // number of bytes of the input file
+    private MappedByteBuffer window; // mapped bytes of the file, starting at windowStart
+    private long windowStart; // position in the file of the first byte of the window
+
+    /**
+     * Maps the first window of the given file.
+     *
+     * @param filename the file containing the problem input
+     * @throws IOException input/output exception to be thrown
+     */
+    public ProblemReader(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        fileSize = channel.size();
+        window = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(WINDOW_SIZE, fileSize));
+    }
+
+    /**
+     * Reads the next integer of the file.
+     *
+     * @return the value of the integer
+     * @throws IOException if the file ends or does not continue with an integer
+     */
+    public int nextInt() throws IOException {
+        // skips the whitespace before the integer
+        int next = nextByte();
+        while (next >= 0 && next <= ' ') {
+            next = nextByte();
+        }
+
+        boolean negative = next == '-';
+        if (negative) {
+            next = nextByte();
+        }
+        if (next < '0' || next > '9') {
+            throw new IOException(next < 0 ? "Unexpected end of the problem input"
+                    : "Unexpected character in the problem input: " + (char) next);
+        }
+
+        // accumulates the digits until the first byte which is not one of them
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        while (next >= '0' && next <= '9') {
+            value = 10 * value + (next - '0');
+            if (value > limit) {
+                throw new IOException("Integer too large in the problem input");
+            }
+            next = nextByte();
+        }
+        if (next > ' ') {
+            throw new IOException("Unexpected character in the problem input: " + (char) next);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Reads the given number of relations, each of them being a pair of integers.
+     *
+     * @param nrRelations the number of relations
+     * @return the ends of the relations, relation "i" joining the elements at indices "2 * i"
+     *         and "2 * i + 1"
+     * @throws IOException if the file ends or does not continue with integers
+     */
+    public int[] readRelations(int nrRelations) throws IOException {
+        int[] ends = new int[2 * nrRelations];
+        for (int i = 0; i < ends.length; ++i) {
+            ends[i] = nextInt();
+        }
+        return ends;
+    }
+
+    /**
+     * Reads the next byte of the file, mapping the following window when the current one has
+     * been consumed.
+     *
+     * @return the byte, or -1 at the end of the file
+     * @throws IOException input/output exception to be thrown
+     */
+    private int nextByte() throws IOException {
+        if (!window.hasRemaining()) {
+            long nextStart = windowStart + window.capacity();
+            if (nextStart >= fileSize) {
+                return -1;
+            }
+            windowStart = nextStart;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(WINDOW_SIZE, fileSize - windowStart));
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
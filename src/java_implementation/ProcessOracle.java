@@ -0,0 +1,194 @@
+// Copyright 2020
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Oracle backend running the external "sat_oracle.py" script, which communicates with the
+ * programme through the oracle input and output files.
+ */
+public class ProcessOracle implements Oracle {
+    private final String oracleInFilename; // the file containing the oracle input
+    private final String oracleOutFilename; // the file containing the oracle output
+    // whether the header of the question is written after its clauses have been counted
+    private final boolean backfillHeader;
+    boolean weighted; // whether the question is in the Weighted Partial Max-SAT format
+    int exitCode = -1; // exit code of the last oracle process, or -1 if none ran
+    long deadline = Long.MAX_VALUE; // System.nanoTime() value after which an answer is given up
+    boolean timedOut; // whether the last answer was given up because of the deadline
+    boolean satisfiable; // boolean answer of the oracle
+    int[] model; // state of the variables given by the oracle
+
+    public ProcessOracle(String oracleInFilename, String oracleOutFilename,
+                         boolean backfillHeader) {
+        this.oracleInFilename = oracleInFilename;
+        this.oracleOutFilename = oracleOutFilename;
+        this.backfillHeader = backfillHeader;
+    }
+
+    @Override
+    public ClauseSink question() throws IOException {
+        return dimacsSink(FileChannel.open(Paths.get(oracleInFilename), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), backfillHeader);
+    }
+
+    /**
+     * Creates the sink formatting the question for the external oracle, remembering its format
+     * in order to read the answer accordingly.
+     *
+     * @param channel  the destination of the formatted question
+     * @param backfill whether the header is written once the clauses have been counted
+     * @return the sink receiving the clauses of the question
+     */
+    ClauseSink dimacsSink(WritableByteChannel channel, boolean backfill) {
+        weighted = false;
+        return new DimacsWriter(channel, backfill) {
+            @Override
+            public void header(long nrVariables, long nrClauses, long top) throws IOException {
+                weighted = true;
+                super.header(nrVariables, nrClauses, top);
+            }
+        };
+    }
+
+    @Override
+    public void ask() throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder();
+        builder.redirectErrorStream(true);
+        builder.command("python3", "sat_oracle.py", oracleInFilename, oracleOutFilename);
+        Process process = builder.start();
+        StringBuilder output = new StringBuilder();
+
+        // collects the messages of the oracle on another thread, so the wait for the process
+        // may be interrupted, killing it
+        Thread outputReader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(process.getInputStream()))) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    output.append(line).append("\n");
+                }
+            } catch (IOException e) {
+                // the process was killed
+            }
+        });
+        outputReader.start();
+        try {
+            if (!waitFor(process)) {
+                return;
+            }
+            outputReader.join();
+        } catch (InterruptedException e) {
+            kill(process);
+            throw e;
+        }
+        if (exitCode != 0) {
+            reportFailure(output.toString());
+        }
+
+        try (BufferedReader inputReader = new BufferedReader(new FileReader(oracleOutFilename))) {
+            readAnswer(inputReader);
+        }
+    }
+
+    /**
+     * Waits for the oracle process until the deadline, killing it when the deadline passes or
+     * when the wait is interrupted. An answer given up at the deadline has no model.
+     *
+     * @param process the oracle process answering the question
+     * @return whether the process ended before the deadline
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    boolean waitFor(Process process) throws InterruptedException {
+        timedOut = false;
+        try {
+            long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : deadline - System.nanoTime();
+            if (process.waitFor(remaining, TimeUnit.NANOSECONDS)) {
+                exitCode = process.exitValue();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            kill(process);
+            throw e;
+        }
+        kill(process);
+        timedOut = true;
+        satisfiable = false;
+        model = new int[0];
+        return false;
+    }
+
+    /**
+     * Kills an oracle process together with the processes it started, which would otherwise
+     * keep its output open.
+     *
+     * @param process the oracle process
+     */
+    static void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Reports the failure of the oracle process to the caller of the task, which decides whether
+     * the programme stops.
+     *
+     * @param output the messages printed by the oracle
+     * @throws IOException always, carrying the messages of the oracle
+     */
+    static void reportFailure(String output) throws IOException {
+        throw new IOException("Error encountered while running oracle\n" + output);
+    }
+
+    /**
+     * Reads the answer of the oracle. A CNF answer starts with the boolean answer on its own
+     * line, followed by the number of variables and their states, while a weighted answer always
+     * has a model and starts directly with the number of variables.
+     *
+     * @param inputReader the reader of the oracle output
+     * @throws IOException input/output exception to be thrown
+     */
+    void readAnswer(BufferedReader inputReader) throws IOException {
+        // extracts the boolean answer of the problem
+        if (!weighted) {
+            satisfiable = inputReader.readLine().equals("True");
+            if (!satisfiable) {
+                model = new int[0];
+                return;
+            }
+        }
+        satisfiable = true;
+
+        // number of variables extracted from the file (corresponding to "V")
+        int nrVariables = Integer.parseInt(inputReader.readLine().split(" ")[0]);
+        String[] answerVariables = inputReader.readLine().split(" ");
+        model = new int[nrVariables];
+        for (int i = 0; i < nrVariables; ++i) {
+            model[i] = Integer.parseInt(answerVariables[i]);
+        }
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public boolean isSatisfiable() {
+        return satisfiable;
+    }
+
+    @Override
+    public int[] getModel() {
+        return model;
+    }
+}
@@ -0,0 +1,133 @@
+// Copyright 2020
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Oracle backend running the external "sat_oracle.py" script without any file staged on disk.
+ * The process is started as soon as the question is opened and the clauses are streamed into
+ * its standard input while they are being formulated, so encoding and parsing overlap; the
+ * answer is read back from its standard output. The script is given "/dev/stdout" as its output
+ * file, so it must print nothing else there (its messages going to the standard error), any
+ * other output being taken for a malformed answer. A question given up before its answer (such
+ * as a formulation failing halfway) kills the process and waits for the threads reading it.
+ */
+public class StreamingOracle extends ProcessOracle {
+    private Process process; // oracle process answering the current question
+    private Thread outputReader; // thread collecting the answer printed by the oracle
+    private Thread errorReader; // thread collecting the messages printed by the oracle
+    private byte[] answer; // standard output of the oracle process
+    private byte[] messages; // standard error of the oracle process
+
+    public StreamingOracle() {
+        super("/dev/stdin", "/dev/stdout", false);
+    }
+
+    @Override
+    public ClauseSink question() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder();
+        builder.command("python3", "sat_oracle.py", "/dev/stdin", "/dev/stdout");
+        process = builder.start();
+
+        // drains both output streams while the question is being written, so the oracle can
+        // never block on a full pipe
+        outputReader = new Thread(() -> answer = readFully(process.getInputStream()));
+        errorReader = new Thread(() -> messages = readFully(process.getErrorStream()));
+        outputReader.start();
+        errorReader.start();
+
+        // a failing write means the oracle stopped reading, so its own error is reported instead
+        OutputStream input = new FilterOutputStream(process.getOutputStream()) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                try {
+                    out.write(bytes, offset, length);
+                } catch (IOException e) {
+                    stoppedReading();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } catch (IOException e) {
+                    stoppedReading();
+                }
+            }
+        };
+        // a pipe can not be rewound, so the header is always the one computed upfront
+        return dimacsSink(Channels.newChannel(input), false);
+    }
+
+    @Override
+    public void ask() throws IOException, InterruptedException {
+        try {
+            // an interrupted wait kills the oracle, like the deadline does
+            if (!waitFor(process)) {
+                return;
+            }
+            outputReader.join();
+            errorReader.join();
+        } catch (InterruptedException e) {
+            kill(process);
+            throw e;
+        }
+        if (exitCode != 0) {
+            reportFailure(new String(messages, StandardCharsets.UTF_8));
+        }
+
+        try (BufferedReader inputReader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(answer), StandardCharsets.US_ASCII))) {
+            readAnswer(inputReader);
+        }
+    }
+
+    @Override
+    public void abandon() {
+        if (process == null) {
+            return;
+        }
+        kill(process);
+        try {
+            outputReader.join();
+            errorReader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Handles an oracle process that closed its input before the end of the question.
+     *
+     * @throws IOException always, carrying the messages of the oracle when it failed
+     */
+    private void stoppedReading() throws IOException {
+        try {
+            exitCode = process.waitFor();
+            errorReader.join();
+            if (exitCode != 0) {
+                reportFailure(new String(messages, StandardCharsets.UTF_8));
+            }
+        } catch (InterruptedException e) {
+            kill(process);
+            Thread.currentThread().interrupt();
+        }
+        throw new IOException("Oracle stopped reading the question");
+    }
+
+    /**
+     * Reads a stream until its end.
+     *
+     * @param stream the stream to be read
+     * @return the bytes of the stream
+     */
+    private static byte[] readFully(InputStream stream) {
+        try (stream) {
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            return new byte[0];
+        }
+    }
+}
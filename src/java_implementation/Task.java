@@ -1,9 +1,7 @@
 // Copyright 2020
 // Author: Matei Simtinică
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 /**
  * This is the abstract base class for all tasks that have to be implemented.
@@ -13,6 +11,21 @@ public abstract class Task {
     String oracleInFilename;
     String oracleOutFilename;
     String outFilename;
+    Options options = new Options(); // optional settings of the run
+    Oracle oracle; // oracle answering the current question
+    ParallelEncoder encoder; // encoder kept between the requests of a daemon worker, if any
+    TaskMetrics metrics = new TaskMetrics(); // metrics of the run, shared with delegated tasks
+    ClauseSink question; // sink receiving the clauses of the current question
+    // System.nanoTime() value after which the optimisation tasks answer with the best cover found
+    // so far, shared with delegated tasks
+    long deadline = Long.MAX_VALUE;
+
+    /**
+     * A phase of the task lifecycle.
+     */
+    interface Phase {
+        void run() throws IOException, InterruptedException;
+    }
 
     public abstract void solve() throws IOException, InterruptedException;
 
@@ -39,6 +52,61 @@ public abstract class Task {
         this.outFilename = outFilename;
     }
 
+    /**
+     * Stores the optional settings of the run.
+     *
+     * @param options the settings given on the command line
+     */
+    public void addOptions(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Starts a new question addressed to the oracle selected in the settings of the run.
+     *
+     * @return the sink receiving the clauses of the question
+     * @throws IOException input/output exception to be thrown
+     */
+    public ClauseSink openOracleQuestion() throws IOException {
+        oracle = Oracle.create(this);
+        // a CNF question may be answered by local search, without the selected oracle
+        if (options.localsearch > 0) {
+            oracle = new LocalSearchOracle(oracle, options.localsearch);
+        }
+        question = oracle.question();
+        // the questions formatted for an oracle process are counted by their writer, so the
+        // parallel encoder still receives the writer itself
+        if (!(question instanceof DimacsWriter)) {
+            question = new TaskMetrics.CountingSink(question);
+        }
+        return question;
+    }
+
+    /**
+     * Provides the encoder generating independent blocks of clauses on the threads of the run:
+     * the one kept by a daemon worker, whose pool and buffers are reused between requests, or a
+     * new one.
+     *
+     * @return the encoder of the question
+     */
+    public ParallelEncoder openEncoder() {
+        if (encoder != null && encoder.nrThreads == options.threads) {
+            return encoder;
+        }
+        return new ParallelEncoder(options.threads);
+    }
+
+    /**
+     * Releases an encoder provided by openEncoder(), unless it is kept for further requests.
+     *
+     * @param opened the encoder of the question
+     */
+    public void closeEncoder(ParallelEncoder opened) {
+        if (opened != encoder) {
+            opened.close();
+        }
+    }
+
     /**
      * Asks the oracle for an answer to the formulated question.
      *
@@ -46,23 +114,65 @@ public abstract class Task {
      * @throws InterruptedException
      */
     public void askOracle() throws IOException, InterruptedException {
-        ProcessBuilder builder = new ProcessBuilder();
-        builder.redirectErrorStream(true);
-        builder.command("python3", "sat_oracle.py", oracleInFilename, oracleOutFilename);
-        Process process = builder.start();
-        BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String buffer;
-        StringBuilder output = new StringBuilder();
-
-        while ((buffer = in.readLine()) != null) {
-            output.append(buffer).append("\n");
+        TaskMetrics.QuestionEvent event = new TaskMetrics.QuestionEvent();
+        event.task = getClass().getSimpleName();
+        event.begin();
+        oracle.setDeadline(deadline);
+        oracle.ask();
+        metrics.question(event, question, oracle);
+        if (options.stats && oracle instanceof LocalSearchOracle) {
+            LocalSearchOracle localSearch = (LocalSearchOracle) oracle;
+            System.err.println("localsearch: " + event.task + " question "
+                    + (localSearch.solved ? "answered" : "given up") + " after "
+                    + localSearch.nrFlips + " flips");
         }
+    }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            System.err.println("Error encountered while running oracle");
-            System.err.println(output.toString());
-            System.exit(-1);
+    /**
+     * @return whether the deadline of the task has passed
+     */
+    public boolean expired() {
+        return System.nanoTime() >= deadline;
+    }
+
+    /**
+     * Runs a phase of the task lifecycle, adding its wall time to the metrics of the run.
+     *
+     * @param name  the name of the phase
+     * @param phase the phase to be run
+     * @throws IOException          input/output exception to be thrown
+     * @throws InterruptedException interruption exception to be thrown
+     */
+    public void measure(String name, Phase phase) throws IOException, InterruptedException {
+        TaskMetrics.PhaseEvent event = new TaskMetrics.PhaseEvent();
+        event.task = getClass().getSimpleName();
+        event.phase = name;
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            phase.run();
+        } catch (Throwable e) {
+            // a failing phase gives up the question of the oracle, so no oracle process started
+            // for it outlives the task
+            if (oracle != null) {
+                oracle.abandon();
+            }
+            throw e;
+        } finally {
+            metrics.phase(event, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes the JSON summary of the metrics of the run to the file given in the settings, if
+     * any.
+     *
+     * @param taskName the name of the task of the run
+     * @throws IOException input/output exception to be thrown
+     */
+    public void writeMetrics(String taskName) throws IOException {
+        if (options.metrics != null) {
+            metrics.write(taskName, options.metrics);
         }
     }
 }
@@ -4,6 +4,7 @@
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -18,17 +19,17 @@ public class Task1 extends Task {
     int nrFamilies; // number of the Mafia families (corresponding to "N")
     int nrRelations; // number of related families (corresponding to "M")
     int nrSpies; // number of spies available for mission (corresponding to "K")
-    List<Integer> relations = new ArrayList<>(); // list of all relations between the Mafia families
+    Graph relations; // graph of all relations between the Mafia families
     List<Integer> assignedSpies = new ArrayList<>(); // list of the spies assigned to each family
     boolean problemAnswer; // boolean answer of the problem
 
     @Override
     public void solve() throws IOException, InterruptedException {
-        readProblemData();
-        formulateOracleQuestion();
-        askOracle();
-        decipherOracleAnswer();
-        writeAnswer();
+        measure("readProblemData", this::readProblemData);
+        measure("formulateOracleQuestion", this::formulateOracleQuestion);
+        measure("askOracle", this::askOracle);
+        measure("decipherOracleAnswer", this::decipherOracleAnswer);
+        measure("writeAnswer", this::writeAnswer);
     }
 
     /**
@@ -40,49 +41,58 @@ public class Task1 extends Task {
      */
     @Override
     public void readProblemData() throws IOException {
-        // defines the buffered reader for the input file
-        FileReader inputFile = new FileReader(inFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
-
-        // extracts the data from first input line and stores it in the corresponding attributes
-        String firstLine = inputReader.readLine();
-        String[] dataFirstLine = firstLine.split(" ");
-        List<String> listFirstLine = Arrays.asList(dataFirstLine);
-        nrFamilies = Integer.parseInt(listFirstLine.get(0));
-        nrRelations = Integer.parseInt(listFirstLine.get(1));
-        nrSpies = Integer.parseInt(listFirstLine.get(2));
-
-        // extracts the data from the rest of the "M" lines of relations
-        for (int i = 0; i < nrRelations; ++i) {
-            String lineRelation = inputReader.readLine();
-            String[] relation = lineRelation.split(" ");
-            List<String> listRelation = Arrays.asList(relation);
-            // extracts a pair of families which are in relation
-            int family1 = Integer.parseInt(listRelation.get(0)); // corresponding to "u"
-            int family2 = Integer.parseInt(listRelation.get(1)); // corresponding to "v"
-            // adds the families in the list of relations
-            relations.add(family1);
-            relations.add(family2);
+        // maps the input file and scans its integers, whatever whitespace separates them
+        try (ProblemReader reader = new ProblemReader(inFilename)) {
+            // extracts the data from first input line and stores it in the corresponding
+            // attributes
+            nrFamilies = reader.nextInt();
+            nrRelations = reader.nextInt();
+            nrSpies = reader.nextInt();
+
+            // extracts the "M" pairs of families which are in relation and builds the graph of
+            // relations
+            relations = new Graph(nrFamilies, reader.readRelations(nrRelations), nrRelations);
         }
     }
 
     /**
-     * Reduces the current problem to SAT by writing it in oracleInFilename in a format
-     * understood by the oracle.
+     * Reduces the current problem to SAT by adding its clauses to the question addressed to the
+     * oracle.
      *
      * @throws IOException input/output exception to be thrown
      */
     @Override
     public void formulateOracleQuestion() throws IOException {
-        // number of total clauses used in the SAT transformation (corresponding to "F")
-        int nrClauses =
-                nrRelations * nrSpies + nrFamilies + nrFamilies * nrSpies * (nrSpies - 1) / 2;
-        // number of total variables used in the SAT transformation (corresponding to "V")
-        int nrVariables = nrFamilies * nrSpies;
-        // defines the buffered writer for the input oracle file
-        BufferedWriter writer = new BufferedWriter(new FileWriter(oracleInFilename));
+        // number of total clauses used in the SAT transformation (corresponding to "F"), the
+        // at-most-one constraints depending on the encoding selected in the settings
+        long nrClauses = (long) nrRelations * nrSpies + nrFamilies
+                + nrFamilies * AtMostOne.countClauses(options.amo, nrSpies);
+        // number of total variables used in the SAT transformation (corresponding to "V"); the
+        // auxiliary variables of the at-most-one constraints follow the "N * K" ones
+        long nrVariables = (long) nrFamilies * nrSpies
+                + (long) nrFamilies * AtMostOne.countVariables(options.amo, nrSpies);
+
+        // families of a clique whose members are assigned distinct spies beforehand, when the
+        // symmetry of the spies is broken by pinning a clique
+        List<Integer> seedClique = new ArrayList<>();
+        if (options.symmetry.equals("clique")) {
+            seedClique = findSeedClique();
+            nrClauses += Math.min(seedClique.size(), nrSpies);
+        }
+        // number of variables "u(i, j)" marking that spy "j" is used by one of the first "i"
+        // families, when the symmetry of the spies is broken by their order of appearance
+        long nrPrecedenceVariables = 0;
+        if (options.symmetry.equals("precedence")) {
+            nrPrecedenceVariables = (long) (nrFamilies - 1) * (nrSpies - 1);
+            nrClauses += (nrSpies - 1) + 2 * nrPrecedenceVariables;
+        }
+        int firstPrecedenceVariable = Math.toIntExact(nrVariables + 1);
+        nrVariables += nrPrecedenceVariables;
+
+        // opens the question addressed to the oracle
+        ClauseSink writer = openOracleQuestion();
         // writes first line of the oracle question
-        writer.write("p cnf " + nrVariables + " " + nrClauses + "\n");
+        writer.header(nrVariables, nrClauses);
 
         // writes "N" clauses corresponding to the fact that each family must have at least one spy
         for (int i = 1; i <= nrFamilies; ++i) {
@@ -91,82 +101,155 @@ public class Task1 extends Task {
             // equal to the number of spies)
             for (int j = 0; j < nrSpies; ++j) {
                 int varFamily = nrFamilies * j + i;
-                writer.write(varFamily + " ");
+                writer.add(varFamily);
             }
-            writer.write("0 \n");
+            writer.add(0);
         }
 
         // writes "M * K" clauses corresponding to the fact that two connected families can not
         // have the same spy
-        for (int i = 0; i < nrRelations; ++i) {
-            // extracts two connected families from the list of relations
-            int family1 = relations.get(2 * i);
-            int family2 = relations.get(2 * i + 1);
-            for (int j = 0; j < nrSpies; ++j) {
-                // creates the variables of the two families according to each spy they may have
-                // in common and negates a possible similarity, writing down the clauses
-                int varFamily1 = nrFamilies * j + family1;
-                int varFamily2 = nrFamilies * j + family2;
-                varFamily1 = -varFamily1;
-                varFamily2 = -varFamily2;
-                writer.write(varFamily1 + " " + varFamily2 + " " + 0 + "\n");
+        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
+            for (int i = 0; i < relations.degree(family1); ++i) {
+                // extracts two connected families from the graph of relations, once per relation
+                int family2 = relations.neighbour(family1, i);
+                if (family2 < family1) {
+                    continue;
+                }
+                for (int j = 0; j < nrSpies; ++j) {
+                    // creates the variables of the two families according to each spy they may
+                    // have in common and negates a possible similarity, writing down the clauses
+                    int varFamily1 = nrFamilies * j + family1;
+                    int varFamily2 = nrFamilies * j + family2;
+                    varFamily1 = -varFamily1;
+                    varFamily2 = -varFamily2;
+                    writer.add(varFamily1);
+                    writer.add(varFamily2);
+                    writer.add(0);
+                }
             }
         }
 
-        // writes "N * K * (K - 1) / 2" clauses corresponding to the fact that a family can not
-        // have more than one spy
+        // writes the clauses corresponding to the fact that a family can not have more than one
+        // spy ("N * K * (K - 1) / 2" clauses with the pairwise encoding)
+        AtMostOne atMostOne = new AtMostOne(options.amo, writer, nrFamilies * nrSpies + 1, 0);
+        int[] varFamilySpies = new int[nrSpies];
         for (int i = 1; i <= nrFamilies; ++i) {
-            for (int j = 0; j < nrSpies - 1; ++j) {
-                // creates the variable of a family and a potential spy it may have
-                int varFamilySpy1 = nrFamilies * j + i;
-                varFamilySpy1 = -varFamilySpy1;
-                for (int k = j + 1; k < nrSpies; ++k) {
-                    // creates the variable of a family and another potential spy it may have
-                    int varFamilySpy2 = nrFamilies * k + i;
-                    varFamilySpy2 = -varFamilySpy2;
-                    // writes down a negated relationship between the two variables, representing
-                    // the fact that they can not coexist
-                    writer.write(varFamilySpy1 + " " + varFamilySpy2 + " 0 \n");
-                }
+            // creates the variables of a family and each potential spy it may have
+            for (int j = 0; j < nrSpies; ++j) {
+                varFamilySpies[j] = nrFamilies * j + i;
             }
+            // writes down the constraint that no two of these variables can coexist
+            atMostOne.encode(varFamilySpies, nrSpies);
         }
 
-        // closes the input oracle file
-        writer.flush();
+        // writes the clauses breaking the symmetry of the interchangeable spies, if requested
+        if (options.symmetry.equals("clique")) {
+            writeCliqueSeed(writer, seedClique);
+        } else if (options.symmetry.equals("precedence")) {
+            writeSpyPrecedence(writer, firstPrecedenceVariable);
+        }
+
+        // closes the oracle question
         writer.close();
     }
 
     /**
-     * Extracts the answer of the problem from the one given by the oracle in oracleOutFilename by
-     * converting the state of the variables to the problem's practical application.
+     * Greedily builds a clique of related families, considering the families in the decreasing
+     * order of their numbers of relations.
+     *
+     * @return the families of the clique
+     */
+    private List<Integer> findSeedClique() {
+        List<Integer> families = new ArrayList<>();
+        for (int family = 1; family <= nrFamilies; ++family) {
+            families.add(family);
+        }
+        families.sort(Comparator.comparingInt(family -> -relations.degree(family)));
+
+        // adds every family related to all the families already in the clique
+        List<Integer> clique = new ArrayList<>();
+        for (int family : families) {
+            boolean relatedToAll = true;
+            for (int member : clique) {
+                if (!relations.isEdge(family, member)) {
+                    relatedToAll = false;
+                    break;
+                }
+            }
+            if (relatedToAll) {
+                clique.add(family);
+            }
+        }
+        return clique;
+    }
+
+    /**
+     * Writes the unit clauses assigning spy "j" to the "j"-th family of the clique. Any
+     * assignment of spies can be brought to this form by renaming the spies, as the families of
+     * a clique all have distinct spies; if the clique is larger than the number of spies, its
+     * remaining families have no spy left, so the problem is refuted by propagation alone.
      *
+     * @param writer the destination of the clauses
+     * @param clique the families of the clique
      * @throws IOException input/output exception to be thrown
      */
-    @Override
-    public void decipherOracleAnswer() throws IOException {
-        // list of stated variables related to oracle's answer to the problem
-        List<Integer> oracleAnswer = new ArrayList<>();
-        // defines the buffered reader for the output oracle file
-        FileReader inputFile = new FileReader(oracleOutFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
+    private void writeCliqueSeed(ClauseSink writer, List<Integer> clique) throws IOException {
+        for (int j = 0; j < Math.min(clique.size(), nrSpies); ++j) {
+            writer.add(nrFamilies * j + clique.get(j));
+            writer.add(0);
+        }
+    }
 
-        // extracts the boolean answer of the problem
-        String answerLogic = inputReader.readLine();
-        problemAnswer = answerLogic.equals("True");
+    /**
+     * Writes the clauses making the spies appear in their order: spy "j + 1" may be planted in
+     * family "i" only if spy "j" was planted in one of the families before it. Any assignment of
+     * spies can be brought to this form by renaming the spies in the order of their first
+     * appearance, so exactly one of the "K!" equivalent assignments remains. The variable
+     * "u(i, j)" (for "i" and "j" from 1 to "N - 1", respectively "K - 1") may only hold if spy
+     * "j" was planted in one of the first "i" families.
+     *
+     * @param writer        the destination of the clauses
+     * @param firstVariable the number of the variable "u(1, 1)"
+     * @throws IOException input/output exception to be thrown
+     */
+    private void writeSpyPrecedence(ClauseSink writer, int firstVariable) throws IOException {
+        // writes "K - 1" clauses corresponding to the fact that the first family gets spy 1
+        for (int j = 1; j < nrSpies; ++j) {
+            writer.add(-(nrFamilies * j + 1));
+            writer.add(0);
+        }
 
-        // if the answer shows the problem is resolvable, extracts the state of the variables
-        if (problemAnswer) {
-            // number of variables extracted from the file (corresponding to "V")
-            int nrVariables = Integer.parseInt(inputReader.readLine());
-            String line = inputReader.readLine();
-            String[] dataLine = line.split(" ");
-            // list of string variables extracted from the file
-            List<String> answerVariables = Arrays.asList(dataLine);
-            for (int i = 0; i < nrVariables; ++i) {
-                // adds the variables to the list of oracle answers
-                oracleAnswer.add(Integer.parseInt(answerVariables.get(i)));
+        for (int i = 1; i < nrFamilies; ++i) {
+            for (int j = 1; j < nrSpies; ++j) {
+                int varUsed = firstVariable + (i - 1) * (nrSpies - 1) + (j - 1);
+                int varUsedBefore = varUsed - (nrSpies - 1);
+                // writes the clause "u(i, j) -> x(i, j) or u(i - 1, j)"
+                writer.add(-varUsed);
+                writer.add(nrFamilies * (j - 1) + i);
+                if (i > 1) {
+                    writer.add(varUsedBefore);
+                }
+                writer.add(0);
+                // writes the clause "x(i + 1, j + 1) -> u(i, j)"
+                writer.add(-(nrFamilies * j + i + 1));
+                writer.add(varUsed);
+                writer.add(0);
             }
         }
+    }
+
+    /**
+     * Extracts the answer of the problem from the one given by the oracle by converting the
+     * state of the variables to the problem's practical application.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    @Override
+    public void decipherOracleAnswer() throws IOException {
+        // extracts the boolean answer of the problem
+        problemAnswer = oracle.isSatisfiable();
+        // list of stated variables related to oracle's answer to the problem
+        int[] oracleAnswer = oracle.getModel();
 
         // if the answer shows the problem is resolvable, converts the stated variables to the
         // problem's practical answer, consisting in populating the list of spies assigned to
@@ -179,7 +262,7 @@ public class Task1 extends Task {
                     int varFamily = nrFamilies * j + i;
                     // verifies whether the variable of the family and a respective spy was
                     // assigned as True by the oracle
-                    if (oracleAnswer.get(varFamily - 1) > 0) {
+                    if (oracleAnswer[varFamily - 1] > 0) {
                         // adds the spy to the list if the condition is verified
                         assignedSpies.add(j + 1);
                     }
@@ -18,18 +18,17 @@ public class Task2 extends Task {
     int nrFamilies; // number of the Mafia families (corresponding to "N")
     int nrRelations; // number of related families (corresponding to "M")
     int sizeExtendedFamily; // size of the searched extended family (corresponding to "K")
-    // list of lists of all relations between the Mafia families
-    List<List<Integer>> relations = new ArrayList<>();
+    Graph relations; // graph of all relations between the Mafia families
     List<Integer> extendedFamily = new ArrayList<>(); // list of the extended family members
     boolean problemAnswer; // boolean answer of the problem
 
     @Override
     public void solve() throws IOException, InterruptedException {
-        readProblemData();
-        formulateOracleQuestion();
-        askOracle();
-        decipherOracleAnswer();
-        writeAnswer();
+        measure("readProblemData", this::readProblemData);
+        measure("formulateOracleQuestion", this::formulateOracleQuestion);
+        measure("askOracle", this::askOracle);
+        measure("decipherOracleAnswer", this::decipherOracleAnswer);
+        measure("writeAnswer", this::writeAnswer);
     }
 
     /**
@@ -41,63 +40,58 @@ public class Task2 extends Task {
      */
     @Override
     public void readProblemData() throws IOException {
-        // defines the buffered reader for the input file
-        FileReader inputFile = new FileReader(inFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
+        // forgets the answer given for an earlier input, the same instance being asked about
+        // every size of the extended family by task3
+        extendedFamily.clear();
+        problemAnswer = false;
+        // maps the input file and scans its integers, whatever whitespace separates them
+        try (ProblemReader reader = new ProblemReader(inFilename)) {
+            // extracts the data from first input line and stores it in the corresponding
+            // attributes
+            nrFamilies = reader.nextInt();
+            nrRelations = reader.nextInt();
+            sizeExtendedFamily = reader.nextInt();
 
-        // extracts the data from first input line and stores it in the corresponding attributes
-        String firstLine = inputReader.readLine();
-        String[] dataFirstLine = firstLine.split(" ");
-        List<String> listFirstLine = Arrays.asList(dataFirstLine);
-        nrFamilies = Integer.parseInt(listFirstLine.get(0));
-        nrRelations = Integer.parseInt(listFirstLine.get(1));
-        sizeExtendedFamily = Integer.parseInt(listFirstLine.get(2));
-
-        // initializes "N + 1" lists of relations corresponding to each family number (the list
-        // from index 0 remains unused)
-        for (int i = 0; i <= nrFamilies; ++i) {
-            List<Integer> newList = new ArrayList<>();
-            relations.add(newList);
-        }
-
-        // extracts the data from the rest of the "M" lines of relations
-        for (int i = 0; i < nrRelations; ++i) {
-            String lineRelation = inputReader.readLine();
-            String[] relation = lineRelation.split(" ");
-            List<String> listRelation = Arrays.asList(relation);
-            // extracts a pair of families which are in relation
-            int family1 = Integer.parseInt(listRelation.get(0)); // corresponding to "u"
-            int family2 = Integer.parseInt(listRelation.get(1)); // corresponding to "v"
-            // creates a reciprocal connection between the two families by adding each family in
-            // the other's corresponding list of relations
-            (relations.get(family1)).add(family2);
-            (relations.get(family2)).add(family1);
+            // extracts the "M" pairs of families which are in relation and builds the graph of
+            // relations, connecting each family to the other one in both directions
+            relations = new Graph(nrFamilies, reader.readRelations(nrRelations), nrRelations);
         }
     }
 
     /**
-     * Reduces the current problem to SAT by writing it in oracleInFilename in a format
-     * understood by the oracle.
+     * Reduces the current problem to SAT by adding its clauses to the question addressed to the
+     * oracle.
      *
      * @throws IOException input/output exception to be thrown
      */
     @Override
     public void formulateOracleQuestion() throws IOException {
+        if (options.clique.equals("cardinality")) {
+            formulateCardinalityQuestion();
+            return;
+        }
+
         // number of edges of the complementary graph of relations, calculated as the total
         // number of edges possible in an undirected graph with "N" nodes, from which the number
         // of relations is subtracted
-        int nrNonEdges = nrFamilies * (nrFamilies - 1) / 2 - nrRelations;
-        // number of total clauses used in the SAT transformation (corresponding to "F")
-        int nrClauses =
-                sizeExtendedFamily + sizeExtendedFamily * nrFamilies * (nrFamilies - 1) / 2
-                        + nrFamilies * sizeExtendedFamily * (sizeExtendedFamily - 1) / 2
-                        + nrNonEdges * sizeExtendedFamily * (sizeExtendedFamily - 1);
-        // number of total variables used in the SAT transformation (corresponding to "V")
-        int nrVariables = nrFamilies * sizeExtendedFamily;
-        // defines the buffered writer for the input oracle file
-        BufferedWriter writer = new BufferedWriter(new FileWriter(oracleInFilename));
+        long nrNonEdges = relations.complementNrEdges();
+        // number of total clauses used in the SAT transformation (corresponding to "F"), the
+        // at-most-one constraints depending on the encoding selected in the settings
+        long nrClauses = sizeExtendedFamily
+                + sizeExtendedFamily * AtMostOne.countClauses(options.amo, nrFamilies)
+                + nrFamilies * AtMostOne.countClauses(options.amo, sizeExtendedFamily)
+                + nrNonEdges * sizeExtendedFamily * (sizeExtendedFamily - 1);
+        // number of total variables used in the SAT transformation (corresponding to "V"); the
+        // auxiliary variables of the at-most-one constraints follow the "N * K" ones
+        long nrVariables = (long) nrFamilies * sizeExtendedFamily
+                + (long) sizeExtendedFamily * AtMostOne.countVariables(options.amo, nrFamilies)
+                + (long) nrFamilies * AtMostOne.countVariables(options.amo, sizeExtendedFamily);
+        // opens the question addressed to the oracle
+        ClauseSink writer = openOracleQuestion();
         // writes first line of the oracle question
-        writer.write("p cnf " + nrVariables + " " + nrClauses + "\n");
+        writer.header(nrVariables, nrClauses);
+        // generates the independent groups of clauses below on the threads of the run
+        ParallelEncoder encoder = openEncoder();
 
         // writes "K" clauses corresponding to the fact that each element from the clique (that
         // will represent the extended family of size "K") must be consisted of a family group
@@ -107,55 +101,60 @@ public class Task2 extends Task {
                 // may be represented by and writes all corresponding variables in the file (each
                 // clique node has an amount of variables equal to the number of families)
                 int varClique = nrFamilies * i + j;
-                writer.write(varClique + " ");
+                writer.add(varClique);
             }
-            writer.write("0\n");
+            writer.add(0);
         }
 
-        // writes "K * N * (N - 1) / 2" clauses corresponding to the fact that a node of a clique
-        // can not be represented by more than a family
-        for (int i = 0; i < sizeExtendedFamily; ++i) {
-            for (int j = 1; j < nrFamilies; ++j) {
-                // creates the variable of a clique node and a potential family it may have
-                int varClique1 = nrFamilies * i + j;
-                varClique1 = -varClique1;
-                for (int k = j + 1; k <= nrFamilies; ++k) {
-                    // creates the variable of a clique node and another potential family it may
-                    // consist of
-                    int varClique2 = nrFamilies * i + k;
-                    varClique2 = -varClique2;
-                    // writes down a negated relationship between the two variables, representing
-                    // the fact that they can not coexist
-                    writer.write(varClique1 + " " + varClique2 + " 0\n");
+        // writes the clauses corresponding to the fact that a node of a clique can not be
+        // represented by more than a family ("K * N * (N - 1) / 2" clauses with the pairwise
+        // encoding)
+        // the auxiliary variables of the groups are numbered in the order of the groups, each of
+        // them getting the same amount
+        int firstAuxiliary = nrFamilies * sizeExtendedFamily + 1;
+        int nodeAuxiliaries = AtMostOne.countVariables(options.amo, nrFamilies);
+        int familyAuxiliaries = AtMostOne.countVariables(options.amo, sizeExtendedFamily);
+        encoder.encode(writer, 0, sizeExtendedFamily, (sink, from, to) -> {
+            AtMostOne atMostOne = new AtMostOne(options.amo, sink,
+                    firstAuxiliary + from * nodeAuxiliaries, 0);
+            int[] varCliques = new int[nrFamilies];
+            for (int i = from; i < to; ++i) {
+                // creates the variables of a clique node and each potential family it may
+                // consist of
+                for (int j = 1; j <= nrFamilies; ++j) {
+                    varCliques[j - 1] = nrFamilies * i + j;
                 }
+                // writes down the constraint that no two of these variables can coexist
+                atMostOne.encode(varCliques, nrFamilies);
             }
-        }
+        });
 
-        // writes "N * K * (K - 1) / 2" clauses corresponding to the fact that a family can not
-        // represent more than a node in the clique
-        for (int i = 1; i <= nrFamilies; ++i) {
-            for (int j = 0; j < sizeExtendedFamily - 1; ++j) {
-                // creates the variable of a family and a potential clique node it may represent
-                int varCliqueFamily1 = nrFamilies * j + i;
-                varCliqueFamily1 = -varCliqueFamily1;
-                for (int k = j + 1; k < sizeExtendedFamily; ++k) {
-                    // creates the variable of a family and another potential clique node it may
-                    // represent
-                    int varCliqueFamily2 = nrFamilies * k + i;
-                    varCliqueFamily2 = -varCliqueFamily2;
-                    // writes down a negated relationship between the two variables, representing
-                    // the fact that they can not coexist
-                    writer.write(varCliqueFamily1 + " " + varCliqueFamily2 + " 0\n");
+        // writes the clauses corresponding to the fact that a family can not represent more
+        // than a node in the clique ("N * K * (K - 1) / 2" clauses with the pairwise
+        // encoding)
+        encoder.encode(writer, 1, nrFamilies + 1, (sink, from, to) -> {
+            AtMostOne atMostOne = new AtMostOne(options.amo, sink, firstAuxiliary
+                    + sizeExtendedFamily * nodeAuxiliaries + (from - 1) * familyAuxiliaries,
+                    0);
+            int[] varCliqueFamilies = new int[sizeExtendedFamily];
+            for (int i = from; i < to; ++i) {
+                // creates the variables of a family and each potential clique node it may
+                // represent
+                for (int j = 0; j < sizeExtendedFamily; ++j) {
+                    varCliqueFamilies[j] = nrFamilies * j + i;
                 }
+                // writes down the constraint that no two of these variables can coexist
+                atMostOne.encode(varCliqueFamilies, sizeExtendedFamily);
             }
-        }
+        });
 
         // writes "nr non-edges * K * (K - 1)" clauses corresponding to the fact that for every two
         // families that do not form a relation, they can not both be present in the clique
-        for (int i = 1; i <= nrFamilies; ++i) {
-            for (int j = 1; j <= nrFamilies; ++j) {
+        encoder.encode(writer, 1, nrFamilies + 1, (sink, from, to) -> {
+            for (int i = from; i < to; ++i) {
                 // gets the pairs of unconnected families
-                if (i < j && !relations.get(i).contains(j)) {
+                for (int j = relations.nextNonNeighbour(i, i + 1); j > 0;
+                        j = relations.nextNonNeighbour(i, j + 1)) {
                     // creates the variable of a family from an unconnected pair and a potential
                     // clique node it may represent
                     for (int k = 0; k < sizeExtendedFamily; ++k) {
@@ -169,49 +168,101 @@ public class Task2 extends Task {
                                 varFamily2 = -varFamily2;
                                 // writes down a negated relationship between the two variables,
                                 // representing the fact that they can not coexist
-                                writer.write(varFamily1 + " " + varFamily2 + " 0\n");
+                                sink.add(varFamily1);
+                                sink.add(varFamily2);
+                                sink.add(0);
                             }
                         }
                     }
                 }
             }
+        });
+        closeEncoder(encoder);
+
+        // closes the oracle question
+        writer.close();
+    }
+
+    /**
+     * Reduces the current problem to SAT using a single variable for each family, stating
+     * whether the family is part of the clique: a binary clause forbids every pair of unrelated
+     * families, while a totalizer counting the chosen families ensures there are at least "K" of
+     * them. The formula has "X + O(N * K)" clauses instead of the "O(N^2 * K^2)" ones of the
+     * encoding with clique nodes.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    private void formulateCardinalityQuestion() throws IOException {
+        // number of edges of the complementary graph of relations
+        long nrNonEdges = relations.complementNrEdges();
+        // the clique can not be larger than the number of families, so the at-least constraint
+        // is replaced by two contradicting unit clauses in that case
+        boolean tooLarge = sizeExtendedFamily > nrFamilies;
+        boolean counted = sizeExtendedFamily > 0 && !tooLarge;
+        // size of the totalizer counting the families of the clique up to "K"
+        Totalizer counter = Totalizer.count(nrFamilies, counted ? sizeExtendedFamily : 0,
+                true, false);
+        // number of total clauses and variables used in the SAT transformation
+        long nrClauses = nrNonEdges + counter.nrClauses + (counted ? 1 : 0) + (tooLarge ? 2 : 0);
+        int nrVariables = counter.nextVariable - 1;
+        // opens the question addressed to the oracle
+        ClauseSink writer = openOracleQuestion();
+        writer.header(nrVariables, nrClauses);
+
+        // writes "X" clauses corresponding to the fact that two unrelated families can not both
+        // be part of the clique
+        for (int i = 1; i <= nrFamilies; ++i) {
+            for (int j = relations.nextNonNeighbour(i, i + 1); j > 0;
+                    j = relations.nextNonNeighbour(i, j + 1)) {
+                writer.add(-i);
+                writer.add(-j);
+                writer.add(0);
+            }
         }
 
-        // closes the input oracle file
-        writer.flush();
+        if (counted) {
+            // writes the totalizer of the family variables, whose output "K" is then asserted
+            int[] families = new int[nrFamilies];
+            for (int i = 0; i < nrFamilies; ++i) {
+                families[i] = i + 1;
+            }
+            int[] outputs = new Totalizer(writer, nrFamilies + 1, 0, true, false)
+                    .encode(families, nrFamilies, sizeExtendedFamily);
+            writer.add(outputs[sizeExtendedFamily - 1]);
+            writer.add(0);
+        } else if (tooLarge) {
+            writer.add(1);
+            writer.add(0);
+            writer.add(-1);
+            writer.add(0);
+        }
+
+        // closes the oracle question
         writer.close();
     }
 
     /**
-     * Extracts the answer of the problem from the one given by the oracle in oracleOutFilename by
-     * converting the state of the variables to the problem's practical application.
+     * Extracts the answer of the problem from the one given by the oracle by converting the
+     * state of the variables to the problem's practical application.
      *
      * @throws IOException input/output exception to be thrown
      */
     @Override
     public void decipherOracleAnswer() throws IOException {
-        // list of stated variables related to oracle's answer to the problem
-        List<Integer> oracleAnswer = new ArrayList<>();
-        // defines the buffered reader for the output oracle file
-        FileReader inputFile = new FileReader(oracleOutFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
-
         // extracts the boolean answer of the problem
-        String answerLogic = inputReader.readLine();
-        problemAnswer = answerLogic.equals("True");
+        problemAnswer = oracle.isSatisfiable();
+        // list of stated variables related to oracle's answer to the problem
+        int[] oracleAnswer = oracle.getModel();
 
-        // if the answer shows the problem is resolvable, extracts the state of the variables
-        if (problemAnswer) {
-            // number of variables extracted from the file (corresponding to "V")
-            int nrVariables = Integer.parseInt(inputReader.readLine());
-            String line = inputReader.readLine();
-            String[] dataLine = line.split(" ");
-            // list of string variables extracted from the file
-            List<String> answerVariables = Arrays.asList(dataLine);
-            for (int i = 0; i < nrVariables; ++i) {
-                // adds the variables to the list of oracle answers
-                oracleAnswer.add(Integer.parseInt(answerVariables.get(i)));
+        // with one variable for each family, the first "K" chosen families form the answer (a
+        // larger clique may have been found)
+        if (problemAnswer && options.clique.equals("cardinality")) {
+            for (int i = 1; i <= nrFamilies && extendedFamily.size() < sizeExtendedFamily; ++i) {
+                if (oracleAnswer[i - 1] > 0) {
+                    extendedFamily.add(i);
+                }
             }
+            return;
         }
 
         // if the answer shows the problem is resolvable, converts the stated variables to the
@@ -225,7 +276,7 @@ public class Task2 extends Task {
                     int varFamily = nrFamilies * j + i;
                     // verifies whether the variable of the family and a respective clique node was
                     // assigned as True by the oracle
-                    if (oracleAnswer.get(varFamily - 1) > 0) {
+                    if (oracleAnswer[varFamily - 1] > 0) {
                         // adds the family to the list if the condition is verified
                         extendedFamily.add(i);
                     }
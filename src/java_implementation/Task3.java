@@ -17,114 +17,260 @@ public class Task3 extends Task {
     int nrFamilies; // number of the Mafia families (corresponding to "N")
     int nrRelations; // number of related families (corresponding to "M")
     int sizeExtendedFamily; // size of the searched extended family (corresponding to "K")
-    // list of lists of all relations between the Mafia families
-    List<List<Integer>> relations = new ArrayList<>();
-    // list of lists of all non-relations between the Mafia families
-    List<List<Integer>> complementRelations = new ArrayList<>();
+    boolean task2Answer; // whether Task2 found the extended family of the questioned size
+    Graph relations; // graph of all relations between the Mafia families
+    VertexCoverKernel kernel; // reduced instance whose cover is lifted, if enabled
     // list of biggest extended family found through task2 call
     List<Integer> extendedFamily = new ArrayList<>();
     // list of minimum number of arrested families
     List<Integer> arrests = new ArrayList<>();
 
     /**
-     * Successively queries the oracle using Task2 in order to find the maximal clique in the
-     * complementary graph of Mafia families relations.
+     * Searches for the maximal clique of the complementary graph of Mafia families relations,
+     * between the bounds given by greedy heuristics, by querying the oracle either through
+     * Task2 or through a single incremental formula. The order of the questions is given by the
+     * search strategy selected in the settings of the run. Once the deadline of the run has
+     * passed, the search stops and the biggest clique found so far is answered.
      *
      * @throws IOException          input/output exception to be thrown
      * @throws InterruptedException interruption exception to be thrown
      */
     @Override
     public void solve() throws IOException, InterruptedException {
-        task2InFilename = inFilename + "_t2";
-        task2OutFilename = outFilename + "_t2";
-        Task2 task2Solver = new Task2();
-        task2Solver.addFiles(task2InFilename, oracleInFilename, oracleOutFilename, task2OutFilename);
-        readProblemData();
+        measure("readProblemData", this::readProblemData);
+        if (options.kernel) {
+            // searches only the kernel, the forced and folded families being decided by the
+            // reduction rules
+            measure("kernel", () -> kernel = new VertexCoverKernel(relations));
+            if (options.stats) {
+                System.err.println("task3: kernel of " + kernel.kernel.nrNodes + " families and "
+                        + kernel.kernel.nrEdges + " relations out of " + nrFamilies + " and "
+                        + nrRelations);
+            }
+            relations = kernel.kernel;
+            nrFamilies = relations.nrNodes;
+            nrRelations = relations.nrEdges;
+        }
+
+        // the linear search keeps the original bounds: a single family is always an extended
+        // family, while the clique can not have more members than its complementary edges allow
+        int lowerBound = Math.min(1, nrFamilies);
+        int upperBound = Math.min(nrFamilies, cliqueSizeLimit());
+        extendedFamily.clear();
+        if (nrFamilies > 0) {
+            extendedFamily.add(1);
+        }
+        if (!options.search.equals("linear")) {
+            // a greedy independent set of the original graph is a clique of the complementary
+            // one, while every edge of a maximal matching of the original graph needs at least
+            // one of its ends to be arrested
+            extendedFamily = relations.greedyIndependentSet();
+            lowerBound = extendedFamily.size();
+            upperBound = Math.min(upperBound, nrFamilies - greedyMatchingSize());
+        } else if (options.deadline > 0) {
+            // the answer written at the deadline is never worse than the greedy cover
+            extendedFamily = relations.greedyIndependentSet();
+        }
+
+        CliqueSearch search = new CliqueSearch(
+                options.search.equals("linear") ? "descending" : options.search,
+                lowerBound, upperBound);
+        CliqueSearch.Question question = options.incremental ? incrementalQuestion(upperBound)
+                : task2Question();
+        measure("search", () -> search.search(size -> {
+            // no more sizes are asked once the deadline has passed
+            if (expired()) {
+                return -1;
+            }
+            // every size asked is an iteration of the metrics of the run
+            TaskMetrics.IterationEvent event = new TaskMetrics.IterationEvent();
+            event.task = getClass().getSimpleName();
+            event.size = size;
+            event.begin();
+            long start = System.nanoTime();
+            event.found = question.ask(size);
+            metrics.iteration(event, System.nanoTime() - start);
+            return event.found;
+        }));
+
+        if (options.stats) {
+            System.err.println("task3: search " + options.search + ", bounds [" + lowerBound
+                    + ", " + upperBound + "], " + search.nrQuestions + " oracle questions");
+        }
+        // the answer is optimal once the search has closed the gap between its bounds
+        boolean optimal = search.lowerBound >= search.upperBound;
+        metrics.answer(optimal);
+
+        // the families needed to be arrested in order to disconnect the original graph of
+        // relations are represented by the complementary set of families which have not been
+        // found in the maximal extended family
+        boolean[] chosen = new boolean[nrFamilies + 1];
+        for (Integer family : extendedFamily) {
+            chosen[family] = true;
+        }
+        for (int family = 1; family <= nrFamilies; ++family) {
+            if (!chosen[family]) {
+                arrests.add(family);
+            }
+        }
+        measure("writeAnswer", this::writeAnswer);
+        if (options.deadline > 0) {
+            System.err.println("task3: " + arrests.size() + " arrests, "
+                    + (optimal ? "optimal" : "not proved optimal at the deadline"));
+        }
+    }
 
+    /**
+     * Computes the biggest size of a clique of the complementary graph based on its number of
+     * connections, a clique of size "K" having "K * (K - 1) / 2" of them.
+     *
+     * @return the biggest possible size of an extended family
+     */
+    private int cliqueSizeLimit() {
         // number of connections of the complementary graph of relations, calculated as the total
         // number of edges possible in an undirected graph with "N" nodes, from which the number
         // of relations is subtracted
-        int complementNrRelations = nrFamilies * (nrFamilies - 1) / 2 - nrRelations;
-        // biggest possible size of an extended family calculated on the base of number of families
-        sizeExtendedFamily = (int) Math.floor(Math.sqrt(2 * complementNrRelations + 0.25) + 0.5);
+        long complementNrRelations = (long) nrFamilies * (nrFamilies - 1) / 2 - nrRelations;
+        return (int) Math.floor(Math.sqrt(2 * complementNrRelations + 0.25) + 0.5);
+    }
 
-        while (sizeExtendedFamily > 1) {
-            reduceToTask2();
-            task2Solver.solve(); // solves task2 with the given attributes
-            extractAnswerFromTask2();
-            // if the current problem has not been solved, continues querying the oracle by
-            // downsizing the requested extended family
-            if (!task2Solver.problemAnswer) {
-                sizeExtendedFamily = sizeExtendedFamily - 1;
-            } else {
-                // when the maximal extended family of the complementary graph has been
-                // discovered, the families needed to be arrested in order to disconnect the
-                // original graph of relations are represented by the complementary set of
-                // families which have not been found in the answer of task2
-                for (int family = 1; family <= nrFamilies; ++family) {
-                    if (!extendedFamily.contains(family)) {
-                        arrests.add(family);
-                    }
+    /**
+     * Builds a maximal matching of the original graph of relations by greedily taking every
+     * relation whose families are not matched yet.
+     *
+     * @return the number of relations of the matching
+     */
+    private int greedyMatchingSize() {
+        boolean[] matched = new boolean[nrFamilies + 1];
+        int size = 0;
+        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
+            for (int i = 0; i < relations.degree(family1); ++i) {
+                int family2 = relations.neighbour(family1, i);
+                if (!matched[family1] && !matched[family2] && family1 != family2) {
+                    matched[family1] = true;
+                    matched[family2] = true;
+                    ++size;
                 }
-                break;
             }
         }
-        writeAnswer();
+        return size;
     }
 
     /**
-     * Reads the problem input from inFilename and stores the number of the Mafia families, the
-     * number of relations and the relations between the families in the attributes defined above.
-     * Also, creates the list of relations between the unconnected families.
+     * Builds the question asking Task2 whether the complementary graph has a clique of a given
+     * size, through a new reduction for every size.
      *
+     * @return the question addressed to Task2
+     */
+    private CliqueSearch.Question task2Question() {
+        // the files of Task2 are named after the oracle and output files, which are never shared
+        // by runs solving at once, unlike the input file raced by a portfolio
+        task2InFilename = oracleInFilename + "_t2";
+        task2OutFilename = outFilename + "_t2";
+        // the answers of the sizes already asked for the same graph may come from the cache
+        Task task2Solver = options.cache.equals("none") ? new Task2()
+                : new CachedTask("task2", Task2::new);
+        task2Solver.addFiles(task2InFilename, oracleInFilename, oracleOutFilename, task2OutFilename);
+        task2Solver.addOptions(options);
+        task2Solver.encoder = encoder;
+        task2Solver.metrics = metrics;
+        task2Solver.deadline = deadline;
+
+        return size -> {
+            sizeExtendedFamily = size;
+            measure("reduceToTask2", this::reduceToTask2);
+            task2Solver.solve(); // solves task2 with the given attributes
+            measure("extractAnswerFromTask2", this::extractAnswerFromTask2);
+            // a negative answer given at the deadline may come from an oracle giving up
+            return task2Answer ? extendedFamily.size() : expired() ? -1 : 0;
+        };
+    }
+
+    /**
+     * Builds the question asking whether the complementary graph has a clique of a given size
+     * through a single formula kept in one in-JVM solver, instead of a new Task2 question for
+     * every size. The formula has a variable for each family (stating whether it is part of the
+     * clique), a binary clause for every relation of the original graph and a totalizer counting
+     * the chosen families, whose output "at least K families are chosen" is assumed for the
+     * asked size "K". The clauses learnt while answering a size are thus reused for the
+     * following ones.
+     *
+     * @param upperBound the size the clique can not exceed
+     * @return the question addressed to the solver
      * @throws IOException input/output exception to be thrown
      */
-    @Override
-    public void readProblemData() throws IOException {
-        // defines the buffered reader for the input file
-        FileReader inputFile = new FileReader(inFilename);
-        BufferedReader inputReader = new BufferedReader(inputFile);
+    private CliqueSearch.Question incrementalQuestion(int upperBound) throws IOException {
+        CdclOracle incrementalOracle = new CdclOracle();
+        oracle = incrementalOracle;
+        ClauseSink writer = incrementalOracle.question();
+        incrementalOracle.setDeadline(deadline);
+        writer.header(nrFamilies, nrRelations);
 
-        // extracts the data from first input line and stores it in the corresponding attributes
-        String firstLine = inputReader.readLine();
-        String[] dataFirstLine = firstLine.split(" ");
-        List<String> listFirstLine = Arrays.asList(dataFirstLine);
-        nrFamilies = Integer.parseInt(listFirstLine.get(0));
-        nrRelations = Integer.parseInt(listFirstLine.get(1));
-
-        // initializes "N + 1" lists of relations corresponding to each family number (the list
-        // from index 0 remains unused); does the same thing for the complementary graph of
-        // relations
-        for (int i = 0; i <= nrFamilies; ++i) {
-            List<Integer> newList = new ArrayList<>();
-            relations.add(newList);
-            List<Integer> newComplementList = new ArrayList<>();
-            complementRelations.add(newComplementList);
+        // writes the clauses corresponding to the fact that two related families can not both
+        // be part of the clique of the complementary graph
+        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
+            for (int i = 0; i < relations.degree(family1); ++i) {
+                int family2 = relations.neighbour(family1, i);
+                if (family2 > family1) {
+                    writer.add(-family1);
+                    writer.add(-family2);
+                    writer.add(0);
+                }
+            }
         }
 
-        // extracts the data from the rest of the "M" lines of relations
-        for (int i = 0; i < nrRelations; ++i) {
-            String lineRelation = inputReader.readLine();
-            String[] relation = lineRelation.split(" ");
-            List<String> listRelation = Arrays.asList(relation);
-            // extracts a pair of families which are in relation
-            int family1 = Integer.parseInt(listRelation.get(0)); // corresponding to "u"
-            int family2 = Integer.parseInt(listRelation.get(1)); // corresponding to "v"
-            // creates a reciprocal connection between the two families by adding each family in
-            // the other's corresponding list of relations
-            (relations.get(family1)).add(family2);
-            (relations.get(family2)).add(family1);
+        // writes the totalizer whose outputs count the families of the clique up to the
+        // biggest possible size
+        int[] families = new int[nrFamilies];
+        for (int i = 0; i < nrFamilies; ++i) {
+            families[i] = i + 1;
         }
+        int[] atLeast = new Totalizer(writer, nrFamilies + 1, 0, true, false)
+                .encode(families, nrFamilies, upperBound);
 
-        // constructs the lists of relations between unconnected families
-        for (int family1 = 1; family1 <= nrFamilies; ++family1) {
-            for (int family2 = 1; family2 <= nrFamilies; ++family2) {
-                // verifies whether the two families are in relation and constructs the
-                // complementary adjacency lists accordingly
-                if (!relations.get(family1).contains(family2)) {
-                    (complementRelations.get(family1)).add(family2);
+        return size -> {
+            incrementalOracle.ask(new int[] {atLeast[size - 1]});
+            if (incrementalOracle.timedOut()) {
+                return -1;
+            }
+            if (!incrementalOracle.isSatisfiable()) {
+                // the refuted size is also added as a clause, the larger sizes being
+                // impossible as well
+                writer.add(-atLeast[size - 1]);
+                writer.add(0);
+                return 0;
+            }
+
+            // the chosen families form the clique, which may be bigger than the asked size
+            int[] model = incrementalOracle.getModel();
+            extendedFamily.clear();
+            for (int family = 1; family <= nrFamilies; ++family) {
+                if (model[family - 1] > 0) {
+                    extendedFamily.add(family);
                 }
             }
+            return extendedFamily.size();
+        };
+    }
+
+    /**
+     * Reads the problem input from inFilename and stores the number of the Mafia families, the
+     * number of relations and the relations between the families in the attributes defined above.
+     *
+     * @throws IOException input/output exception to be thrown
+     */
+    @Override
+    public void readProblemData() throws IOException {
+        // maps the input file and scans its integers, whatever whitespace separates them
+        try (ProblemReader reader = new ProblemReader(inFilename)) {
+            // extracts the data from first input line and stores it in the corresponding
+            // attributes
+            nrFamilies = reader.nextInt();
+            nrRelations = reader.nextInt();
+
+            // extracts the "M" pairs of families which are in relation and builds the graph of
+            // relations, whose complementary graph is iterated through the unrelated pairs
+            relations = new Graph(nrFamilies, reader.readRelations(nrRelations), nrRelations);
         }
     }
 
@@ -139,7 +285,7 @@ public class Task3 extends Task {
         // number of connections of the complementary graph of relations, calculated as the total
         // number of edges possible in an undirected graph with "N" nodes, from which the number
         // of relations is subtracted
-        int complementNrRelations = nrFamilies * (nrFamilies - 1) / 2 - nrRelations;
+        long complementNrRelations = relations.complementNrEdges();
         // writes first line of the input file
         writer.write(nrFamilies + " " + complementNrRelations + " " + sizeExtendedFamily
                 + "\n");
@@ -147,10 +293,9 @@ public class Task3 extends Task {
         // writes the next "complementNrRelations" lines representing the connections of the
         // complementary graph
         for (int family1 = 1; family1 <= nrFamilies; ++family1) {
-            for (Integer family2 : complementRelations.get(family1)) {
-                if (family2 > family1) {
-                    writer.write(family1 + " " + family2 + "\n");
-                }
+            for (int family2 = relations.nextNonNeighbour(family1, family1 + 1); family2 > 0;
+                    family2 = relations.nextNonNeighbour(family1, family2 + 1)) {
+                writer.write(family1 + " " + family2 + "\n");
             }
         }
 
@@ -170,15 +315,14 @@ public class Task3 extends Task {
         FileReader inputFile = new FileReader(task2OutFilename);
         BufferedReader inputReader = new BufferedReader(inputFile);
 
-        // clears the attribute before populating it
-        extendedFamily.clear();
-
         // extracts the boolean answer of the problem
         String answerLogic = inputReader.readLine();
-        boolean problemAnswer = answerLogic.equals("True");
+        task2Answer = answerLogic.equals("True");
 
-        // if the answer shows the problem is resolvable, extracts the extended family members
-        if (problemAnswer) {
+        // if the answer shows the problem is resolvable, extracts the extended family members,
+        // otherwise keeps the last extended family found
+        if (task2Answer) {
+            extendedFamily.clear();
             String line = inputReader.readLine();
             String[] dataLine = line.split(" ");
             for (String family : dataLine) {
@@ -195,6 +339,15 @@ public class Task3 extends Task {
      */
     @Override
     public void writeAnswer() throws IOException {
+        if (kernel != null) {
+            // the arrests found in the kernel are lifted to the families of the original graph
+            boolean[] arrested = new boolean[nrFamilies + 1];
+            for (Integer family : arrests) {
+                arrested[family] = true;
+            }
+            arrests = kernel.lift(arrested);
+        }
+
         // defines the buffered writer for the output file
         BufferedWriter writer = new BufferedWriter(new FileWriter(outFilename));
 
@@ -0,0 +1,281 @@
+// Copyright 2020
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Metrics of a run, shared by a task and the tasks it delegates to (the components of the
+ * graph, the task2 questions of task3, the task solving a problem missing from the cache):
+ * phases     - the number of runs and the wall time of every phase of the task lifecycle, by
+ *              task ("Task2.askOracle")
+ * questions  - the variables, clauses and bytes of the questions addressed to the oracle, the
+ *              exit code of the last oracle process and the number of satisfiable answers
+ * iterations - the size asked by every question of the clique search of task3, the size found
+ *              (-1 for a question given up at the deadline) and the time spent answering it
+ * optimal    - whether the answers of the optimisation tasks were all proved optimal
+ * Every phase, question and iteration is also committed as a JDK Flight Recorder event (in the
+ * "Reductions" category), recorded when the JVM runs with "-XX:StartFlightRecording", while the
+ * totals are written as a JSON summary at the end of the run.
+ */
+public class TaskMetrics {
+    private final long start = System.nanoTime(); // start of the run
+    // number of runs and wall time in nanoseconds of every phase, in the order of their start
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    // size asked, size found and time in nanoseconds of every iteration of task3
+    private final List<long[]> iterations = new ArrayList<>();
+
+    long nrQuestions; // number of questions addressed to the oracle
+    long nrSatisfiable; // number of questions found satisfiable
+    long nrVariables; // variables of all the questions
+    long nrClauses; // clauses of all the questions
+    long nrBytes; // bytes of all the questions formatted for an oracle process
+    int exitCode = -1; // exit code of the last oracle process, or -1 if none ran
+    // whether every answer of task3 and of the bonus task was proved optimal, or null if none
+    // was given
+    Boolean optimal;
+
+    @Name("reductions.Phase")
+    @Label("Task Phase")
+    @Category("Reductions")
+    static class PhaseEvent extends Event {
+        @Label("Task")
+        String task;
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("reductions.Question")
+    @Label("Oracle Question")
+    @Category("Reductions")
+    static class QuestionEvent extends Event {
+        @Label("Task")
+        String task;
+        @Label("Oracle")
+        String oracle;
+        @Label("Variables")
+        long variables;
+        @Label("Clauses")
+        long clauses;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Exit Code")
+        int exitCode;
+        @Label("Satisfiable")
+        boolean satisfiable;
+    }
+
+    @Name("reductions.Iteration")
+    @Label("Clique Search Iteration")
+    @Category("Reductions")
+    static class IterationEvent extends Event {
+        @Label("Task")
+        String task;
+        @Label("Asked Size")
+        int size;
+        @Label("Found Size")
+        int found;
+    }
+
+    /**
+     * Sink counting the clauses and the variables of a question addressed to an in-JVM oracle,
+     * the clauses formatted for an oracle process being counted by their writer.
+     */
+    static class CountingSink implements ClauseSink {
+        private final ClauseSink sink; // sink receiving the clauses
+        long nrVariables; // number of variables given in the header
+        long nrClauses; // number of clauses added so far
+        int maxVariable; // biggest variable added so far
+
+        CountingSink(ClauseSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void header(long nrVariables, long nrClauses) throws IOException {
+            this.nrVariables = nrVariables;
+            sink.header(nrVariables, nrClauses);
+        }
+
+        @Override
+        public void header(long nrVariables, long nrClauses, long top) throws IOException {
+            this.nrVariables = nrVariables;
+            sink.header(nrVariables, nrClauses, top);
+        }
+
+        @Override
+        public void weight(long weight) throws IOException {
+            sink.weight(weight);
+        }
+
+        @Override
+        public void add(int literal) throws IOException {
+            if (literal == 0) {
+                ++nrClauses;
+            } else {
+                maxVariable = Math.max(maxVariable, Math.abs(literal));
+            }
+            sink.add(literal);
+        }
+
+        @Override
+        public void close() throws IOException {
+            sink.close();
+        }
+    }
+
+    /**
+     * Adds a run of a phase.
+     *
+     * @param event    the event started with the phase
+     * @param duration the wall time of the phase in nanoseconds
+     */
+    void phase(PhaseEvent event, long duration) {
+        event.commit();
+        synchronized (this) {
+            long[] totals = phases.computeIfAbsent(event.task + "." + event.phase,
+                    phase -> new long[2]);
+            ++totals[0];
+            totals[1] += duration;
+        }
+    }
+
+    /**
+     * Adds a question answered by the oracle.
+     *
+     * @param event    the event started with the answer of the oracle
+     * @param question the sink which received the clauses of the question
+     * @param oracle   the oracle which answered it
+     */
+    void question(QuestionEvent event, ClauseSink question, Oracle oracle) {
+        // a question handed over by the local search is counted as the complete oracle got it
+        if (oracle instanceof LocalSearchOracle && ((LocalSearchOracle) oracle).forwarded != null) {
+            LocalSearchOracle localSearch = (LocalSearchOracle) oracle;
+            if (localSearch.forwarded instanceof DimacsWriter) {
+                question = localSearch.forwarded;
+            }
+            oracle = localSearch.complete;
+        }
+        event.oracle = oracle.getClass().getSimpleName();
+        if (question instanceof DimacsWriter) {
+            DimacsWriter writer = (DimacsWriter) question;
+            event.variables = Math.max(writer.declaredVariables, writer.maxVariable);
+            event.clauses = writer.nrClauses;
+            event.bytes = writer.nrBytes;
+        } else if (question instanceof CountingSink) {
+            CountingSink sink = (CountingSink) question;
+            event.variables = Math.max(sink.nrVariables, sink.maxVariable);
+            event.clauses = sink.nrClauses;
+        }
+        event.exitCode = oracle instanceof ProcessOracle ? ((ProcessOracle) oracle).exitCode : -1;
+        event.satisfiable = oracle.isSatisfiable();
+        event.commit();
+
+        synchronized (this) {
+            ++nrQuestions;
+            nrSatisfiable += event.satisfiable ? 1 : 0;
+            nrVariables += event.variables;
+            nrClauses += event.clauses;
+            nrBytes += event.bytes;
+            if (event.exitCode >= 0) {
+                exitCode = event.exitCode;
+            }
+        }
+    }
+
+    /**
+     * Adds an iteration of the clique search of task3.
+     *
+     * @param event    the event started with the iteration
+     * @param duration the wall time of the iteration in nanoseconds
+     */
+    void iteration(IterationEvent event, long duration) {
+        event.commit();
+        synchronized (this) {
+            iterations.add(new long[] {event.size, event.found, duration});
+        }
+    }
+
+    /**
+     * Adds an answer of an optimisation task.
+     *
+     * @param proved whether the answer was proved optimal
+     */
+    synchronized void answer(boolean proved) {
+        optimal = (optimal == null || optimal) && proved;
+    }
+
+    /**
+     * Writes the JSON summary of the run to the given file, or to the standard error for "-".
+     *
+     * @param taskName the name of the task of the run
+     * @param filename the destination of the summary
+     * @throws IOException input/output exception to be thrown
+     */
+    void write(String taskName, String filename) throws IOException {
+        String summary = toJson(taskName);
+        if (filename.equals("-")) {
+            System.err.println(summary);
+        } else {
+            Files.write(Paths.get(filename), (summary + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param taskName the name of the task of the run
+     * @return the summary of the run as a single line JSON object, the times in milliseconds
+     */
+    synchronized String toJson(String taskName) {
+        StringBuilder json = new StringBuilder("{\"task\":\"").append(taskName).append('"');
+        json.append(",\"wallMs\":").append(millis(System.nanoTime() - start));
+
+        json.append(",\"phases\":{");
+        String separator = "";
+        for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+            json.append(separator).append('"').append(phase.getKey()).append("\":{\"count\":")
+                    .append(phase.getValue()[0]).append(",\"ms\":")
+                    .append(millis(phase.getValue()[1])).append('}');
+            separator = ",";
+        }
+        json.append('}');
+
+        json.append(",\"questions\":").append(nrQuestions)
+                .append(",\"satisfiable\":").append(nrSatisfiable)
+                .append(",\"variables\":").append(nrVariables)
+                .append(",\"clauses\":").append(nrClauses)
+                .append(",\"bytes\":").append(nrBytes)
+                .append(",\"oracleExitCode\":").append(exitCode >= 0 ? exitCode : "null")
+                .append(",\"optimal\":").append(optimal);
+
+        json.append(",\"iterations\":[");
+        separator = "";
+        for (long[] iteration : iterations) {
+            json.append(separator).append("{\"k\":").append(iteration[0])
+                    .append(",\"found\":").append(iteration[1])
+                    .append(",\"ms\":").append(millis(iteration[2])).append('}');
+            separator = ",";
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * @param nanos a duration in nanoseconds
+     * @return the duration in milliseconds, with three decimals
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
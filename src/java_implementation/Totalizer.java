@@ -0,0 +1,157 @@
+// Copyright 2020
+
+import java.io.IOException;
+
+/**
+ * Encodes the number of true variables of a group in unary, through Bailleux and Boufkhad's
+ * totalizer: a binary tree whose every node counts the true variables below it, its output "o_j"
+ * standing for "at least j of these variables are true". The counting may be capped at a bound,
+ * in which case each node has at most that many outputs ("k-simplified" totalizer) and the
+ * encoding has O(n * bound) clauses instead of O(n^2).
+ * Two families of clauses relate the outputs of a node to those of its children "a" and "b":
+ * at least  - "o_s -> a_(x+1) or b_(s-x)" for all "x", so that asserting an output forces the
+ *             variables to be true ("at least s" constraints)
+ * at most   - "a_x and b_(s-x) -> o_s" for all "x", so that the true variables force the outputs
+ *             ("at most s" constraints, by negating output "o_(s+1)")
+ * The auxiliary variables are allocated consecutively, starting from the given first variable.
+ */
+public class Totalizer {
+    private final ClauseSink writer; // destination of the clauses, or null when only counting
+    private final long weight; // weight written before every clause, or 0 for a CNF question
+    private final boolean atLeast; // whether the "at least" family of clauses is written
+    private final boolean atMost; // whether the "at most" family of clauses is written
+    int nextVariable; // first auxiliary variable not allocated yet
+    long nrClauses; // number of clauses written so far
+
+    /**
+     * @param writer        the destination of the clauses
+     * @param firstVariable the first variable that may be allocated as auxiliary
+     * @param weight        the weight of the clauses, or 0 for a CNF question
+     * @param atLeast       whether the outputs may be asserted ("at least" constraints)
+     * @param atMost        whether the outputs may be negated ("at most" constraints)
+     */
+    public Totalizer(ClauseSink writer, int firstVariable, long weight, boolean atLeast,
+                     boolean atMost) {
+        this.writer = writer;
+        this.nextVariable = firstVariable;
+        this.weight = weight;
+        this.atLeast = atLeast;
+        this.atMost = atMost;
+    }
+
+    /**
+     * Runs the encoding of a group of the given size without writing any clause.
+     *
+     * @param size    the number of variables of the group
+     * @param bound   the bound the counting is capped at
+     * @param atLeast whether the "at least" family of clauses is counted
+     * @param atMost  whether the "at most" family of clauses is counted
+     * @return the counter, holding the number of clauses and the next free variable (the
+     *         variables of the group being numbered from 1 to size)
+     */
+    public static Totalizer count(int size, int bound, boolean atLeast, boolean atMost) {
+        int[] variables = new int[size];
+        for (int i = 0; i < size; ++i) {
+            variables[i] = i + 1;
+        }
+        Totalizer counter = new Totalizer(null, size + 1, 0, atLeast, atMost);
+        try {
+            counter.encode(variables, size, bound);
+        } catch (IOException e) {
+            throw new AssertionError(e); // nothing is written while counting
+        }
+        return counter;
+    }
+
+    /**
+     * Writes the totalizer of the given variables.
+     *
+     * @param variables the variables of the group
+     * @param size      the number of variables to be taken from the array
+     * @param bound     the bound the counting is capped at
+     * @return the outputs of the totalizer, the element at index "j" standing for "at least
+     *         j + 1 variables are true", for "j" below min(size, bound)
+     * @throws IOException input/output exception to be thrown
+     */
+    public int[] encode(int[] variables, int size, int bound) throws IOException {
+        if (size == 0 || bound == 0) {
+            return new int[0];
+        }
+        return encode(variables, 0, size, bound);
+    }
+
+    private int[] encode(int[] variables, int from, int to, int bound) throws IOException {
+        // a single variable counts itself
+        if (to - from == 1) {
+            return new int[] {variables[from]};
+        }
+
+        int middle = (from + to) / 2;
+        int[] left = encode(variables, from, middle, bound);
+        int[] right = encode(variables, middle, to, bound);
+        int nrOutputs = Math.min(to - from, bound);
+        int[] outputs = new int[nrOutputs];
+        for (int i = 0; i < nrOutputs; ++i) {
+            outputs[i] = nextVariable++;
+        }
+
+        for (int sum = 1; sum <= nrOutputs; ++sum) {
+            // "x" true variables on the left side and "sum - x" on the right one
+            for (int x = Math.max(0, sum - right.length); x <= Math.min(sum, left.length); ++x) {
+                int y = sum - x;
+                if (atMost) {
+                    // writes "a_x and b_y -> o_sum", "a_0" and "b_0" being always true
+                    startClause();
+                    if (x > 0) {
+                        literal(-left[x - 1]);
+                    }
+                    if (y > 0) {
+                        literal(-right[y - 1]);
+                    }
+                    endClause(outputs[sum - 1]);
+                }
+            }
+            // writes "o_sum -> a_(x+1) or b_(sum-x)" for all "x" from 0 to sum - 1, the missing
+            // outputs of the children being always false
+            for (int x = 0; atLeast && x < sum; ++x) {
+                int y = sum - 1 - x;
+                if (x > left.length || y > right.length) {
+                    continue; // implied by the clause of the split with the full child
+                }
+                startClause();
+                literal(-outputs[sum - 1]);
+                if (x < left.length) {
+                    literal(left[x]);
+                }
+                if (y < right.length) {
+                    literal(right[y]);
+                }
+                endClause(0);
+            }
+        }
+
+        return outputs;
+    }
+
+    private void startClause() throws IOException {
+        ++nrClauses;
+        if (writer != null && weight > 0) {
+            writer.weight(weight);
+        }
+    }
+
+    private void literal(int literal) throws IOException {
+        if (writer != null) {
+            writer.add(literal);
+        }
+    }
+
+    private void endClause(int literal) throws IOException {
+        if (writer != null) {
+            if (literal != 0) {
+                writer.add(literal);
+            }
+            writer.add(0);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+// Copyright 2020
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shrinks a minimum vertex cover instance before it is encoded, through the following rules,
+ * each of them keeping at least one minimum cover of the graph:
+ * isolated - a node without neighbours is never needed in the cover
+ * degree 1 - the neighbour of a node of degree 1 is put in the cover
+ * degree 2 - the two neighbours of a node of degree 2 are put in the cover if they are related;
+ *            otherwise the three nodes are folded into a new node related to all the neighbours
+ *            of the two, the cover then holding either the two neighbours (if the new node is in
+ *            the cover of the folded graph) or the folded node itself
+ * LP       - the linear relaxation of the problem is solved through a maximum matching of the
+ *            bipartite double cover of the graph; by the theorem of Nemhauser and Trotter, the
+ *            nodes of value 1 are put in the cover and the ones of value 0 are left out (which
+ *            also removes every crown of the graph)
+ * The rules are applied until none of them changes the graph. The remaining nodes form the
+ * kernel, numbered from 1, whose cover is then lifted back to the original graph.
+ */
+public class VertexCoverKernel {
+    private final int nrNodes; // number of nodes of the original graph
+    private int nrCurrent; // number of nodes created so far, the folded ones included, plus one
+    // neighbours of every node, the first lengths[node] of them being listed; the removed nodes
+    // are only dropped from a list when it is next scanned
+    private final int[][] adjacent;
+    private final int[] lengths;
+    private final int[] degrees; // number of neighbours of every node still part of the graph
+    private final boolean[] removed; // whether a node is no longer part of the graph
+    private final boolean[] inCover; // decided state of every node
+    private final int[] stamps; // last fold listing every node as a neighbour of the new node
+    private int[] folds = new int[16]; // folded node, neighbours and new node of every fold
+    private int nrFolds;
+    private int[] pending = new int[16]; // nodes of low degree, used as a stack
+    private int nrPending;
+
+    Graph kernel; // graph of the remaining nodes, numbered from 1
+    int[] kernelNodes; // node of the current graph matching every node of the kernel
+
+    /**
+     * Applies the rules to the given graph and builds its kernel.
+     *
+     * @param graph the graph whose minimum vertex cover is searched
+     */
+    public VertexCoverKernel(Graph graph) {
+        nrNodes = graph.nrNodes;
+        // every fold removes three nodes and adds one, so there are less than 3 * N / 2 nodes
+        int capacity = nrNodes + nrNodes / 2 + 2;
+        adjacent = new int[capacity][];
+        lengths = new int[capacity];
+        degrees = new int[capacity];
+        removed = new boolean[capacity];
+        inCover = new boolean[capacity];
+        stamps = new int[capacity];
+        nrCurrent = nrNodes + 1;
+        removed[0] = true;
+
+        // copies the relations of every node, without the repeated ones
+        for (int node = 1; node <= nrNodes; ++node) {
+            adjacent[node] = new int[graph.degree(node)];
+            for (int i = 0; i < graph.degree(node); ++i) {
+                int neighbour = graph.neighbour(node, i);
+                if (stamps[neighbour] != node && neighbour != node) {
+                    stamps[neighbour] = node;
+                    adjacent[node][lengths[node]++] = neighbour;
+                }
+            }
+            degrees[node] = lengths[node];
+        }
+        Arrays.fill(stamps, 0);
+
+        for (int node = nrNodes; node >= 1; --node) {
+            push(node);
+        }
+        do {
+            reduceLowDegrees();
+        } while (reduceByRelaxation());
+        buildKernel();
+    }
+
+    /**
+     * Builds the cover of the original graph from a cover of the kernel.
+     *
+     * @param kernelCover the state of the nodes of the kernel, indexed from 1
+     * @return the nodes of the original graph forming its cover, in increasing order
+     */
+    public List<Integer> lift(boolean[] kernelCover) {
+        for (int node = 1; node < kernelNodes.length; ++node) {
+            inCover[kernelNodes[node]] = kernelCover[node];
+        }
+        // unfolds the nodes in the reverse order of their folding, the state of a new node
+        // being known before the fold creating it is undone
+        for (int i = 4 * (nrFolds - 1); i >= 0; i -= 4) {
+            boolean folded = inCover[folds[i + 3]];
+            inCover[folds[i]] = !folded;
+            inCover[folds[i + 1]] = folded;
+            inCover[folds[i + 2]] = folded;
+        }
+
+        List<Integer> cover = new ArrayList<>();
+        for (int node = 1; node <= nrNodes; ++node) {
+            if (inCover[node]) {
+                cover.add(node);
+            }
+        }
+        return cover;
+    }
+
+    /**
+     * Drops the removed nodes from the list of neighbours of a node.
+     *
+     * @param node a node of the graph
+     * @return the number of neighbours of the node, now all listed first
+     */
+    private int compact(int node) {
+        int[] list = adjacent[node];
+        int length = 0;
+        for (int i = 0; i < lengths[node]; ++i) {
+            if (!removed[list[i]]) {
+                list[length++] = list[i];
+            }
+        }
+        lengths[node] = length;
+        return length;
+    }
+
+    /**
+     * @param node1 a node of the graph
+     * @param node2 another node of the graph
+     * @return whether the two nodes are related, searched in the shorter list of neighbours
+     */
+    private boolean related(int node1, int node2) {
+        if (degrees[node1] > degrees[node2]) {
+            return related(node2, node1);
+        }
+        int length = compact(node1);
+        for (int i = 0; i < length; ++i) {
+            if (adjacent[node1][i] == node2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a node to the list of neighbours of another one.
+     */
+    private void link(int node, int neighbour) {
+        if (lengths[node] == adjacent[node].length) {
+            // the removed nodes make room before the list grows
+            if (compact(node) == adjacent[node].length) {
+                adjacent[node] = Arrays.copyOf(adjacent[node], 2 * lengths[node] + 1);
+            }
+        }
+        adjacent[node][lengths[node]++] = neighbour;
+        ++degrees[node];
+    }
+
+    /**
+     * Marks a node whose degree may have become low.
+     */
+    private void push(int node) {
+        if (nrPending == pending.length) {
+            pending = Arrays.copyOf(pending, 2 * nrPending);
+        }
+        pending[nrPending++] = node;
+    }
+
+    /**
+     * Applies the rules for the nodes of degree at most 2 until none of them is left.
+     */
+    private void reduceLowDegrees() {
+        while (nrPending > 0) {
+            int node = pending[--nrPending];
+            if (removed[node] || degrees[node] > 2) {
+                continue;
+            }
+            compact(node);
+            int[] ends = adjacent[node]; // remaining neighbours, listed first
+            if (degrees[node] == 0) {
+                remove(node, false);
+            } else if (degrees[node] == 1) {
+                remove(ends[0], true);
+                remove(node, false);
+            } else if (related(ends[0], ends[1])) {
+                // the triangle needs two of its nodes, the neighbours covering more edges
+                remove(ends[0], true);
+                remove(ends[1], true);
+                remove(node, false);
+            } else {
+                fold(node, ends[0], ends[1]);
+            }
+        }
+    }
+
+    /**
+     * Folds a node of degree 2 together with its two unrelated neighbours into a new node.
+     */
+    private void fold(int node, int first, int second) {
+        int folded = nrCurrent++;
+        if (4 * nrFolds + 4 > folds.length) {
+            folds = Arrays.copyOf(folds, 2 * folds.length);
+        }
+        folds[4 * nrFolds] = node;
+        folds[4 * nrFolds + 1] = first;
+        folds[4 * nrFolds + 2] = second;
+        folds[4 * nrFolds + 3] = folded;
+        ++nrFolds;
+
+        // the state of the three nodes is decided when the fold is undone
+        remove(node, false);
+        remove(first, false);
+        remove(second, false);
+
+        // the new node is related to the remaining neighbours of the two, each listed once
+        adjacent[folded] = new int[lengths[first] + lengths[second]];
+        for (int end : new int[] {first, second}) {
+            for (int i = 0; i < lengths[end]; ++i) {
+                int neighbour = adjacent[end][i];
+                if (!removed[neighbour] && stamps[neighbour] != folded) {
+                    stamps[neighbour] = folded;
+                    adjacent[folded][lengths[folded]++] = neighbour;
+                    link(neighbour, folded);
+                }
+            }
+        }
+        degrees[folded] = lengths[folded];
+        push(folded);
+    }
+
+    /**
+     * Removes a node from the graph, deciding its state, and marks its neighbours whose degree
+     * became low.
+     */
+    private void remove(int node, boolean covered) {
+        removed[node] = true;
+        inCover[node] = covered;
+        for (int i = 0; i < lengths[node]; ++i) {
+            int neighbour = adjacent[node][i];
+            if (!removed[neighbour] && --degrees[neighbour] <= 2) {
+                push(neighbour);
+            }
+        }
+        degrees[node] = 0;
+    }
+
+    /**
+     * Solves the linear relaxation through a maximum matching of the bipartite double cover,
+     * which has a copy of every node on each side and an edge between the copies of every two
+     * related nodes. The minimum vertex cover of the double cover (obtained from the matching
+     * through König's theorem) holds both copies of the nodes of value 1 and none of the copies
+     * of the nodes of value 0.
+     *
+     * @return whether a node has been removed
+     */
+    private boolean reduceByRelaxation() {
+        // numbers the remaining nodes consecutively
+        int[] index = new int[nrCurrent];
+        int[] nodes = new int[nrCurrent];
+        int size = 0;
+        for (int node = 1; node < nrCurrent; ++node) {
+            if (!removed[node]) {
+                index[node] = size;
+                nodes[size++] = node;
+            }
+        }
+        if (size == 0) {
+            return false;
+        }
+        int[][] adjacency = new int[size][];
+        for (int i = 0; i < size; ++i) {
+            adjacency[i] = new int[compact(nodes[i])];
+            for (int j = 0; j < adjacency[i].length; ++j) {
+                adjacency[i][j] = index[adjacent[nodes[i]][j]];
+            }
+        }
+
+        int[] matchLeft = new int[size]; // right copy matched with every left copy, or -1
+        int[] matchRight = new int[size]; // left copy matched with every right copy, or -1
+        Arrays.fill(matchLeft, -1);
+        Arrays.fill(matchRight, -1);
+        maximumMatching(adjacency, matchLeft, matchRight);
+
+        // the copies reachable from the unmatched left copies through alternating paths
+        boolean[] reachedLeft = new boolean[size];
+        boolean[] reachedRight = new boolean[size];
+        int[] queue = new int[size]; // every left copy is queued at most once
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; ++i) {
+            if (matchLeft[i] < 0) {
+                reachedLeft[i] = true;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int left = queue[head++];
+            for (int right : adjacency[left]) {
+                if (!reachedRight[right]) {
+                    reachedRight[right] = true;
+                    int next = matchRight[right];
+                    if (next >= 0 && !reachedLeft[next]) {
+                        reachedLeft[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        // the cover of the double cover holds the unreached left and the reached right copies
+        boolean changed = false;
+        for (int i = 0; i < size; ++i) {
+            int copies = (reachedLeft[i] ? 0 : 1) + (reachedRight[i] ? 1 : 0);
+            if (copies != 1) {
+                remove(nodes[i], copies == 2);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Computes a maximum matching of a bipartite graph through the algorithm of Hopcroft and
+     * Karp, whose augmenting paths are searched without recursion.
+     *
+     * @param adjacency  the right nodes related to every left node
+     * @param matchLeft  the right node matched with every left node, or -1
+     * @param matchRight the left node matched with every right node, or -1
+     */
+    private static void maximumMatching(int[][] adjacency, int[] matchLeft, int[] matchRight) {
+        int size = adjacency.length;
+        int[] distances = new int[size];
+        int[] edgeIndices = new int[size];
+        int[] path = new int[size];
+        int[] queue = new int[size]; // every left node is queued at most once in a phase
+
+        while (true) {
+            // layers the left nodes by their distance from the unmatched ones
+            boolean augmentable = false;
+            int head = 0;
+            int tail = 0;
+            for (int i = 0; i < size; ++i) {
+                distances[i] = matchLeft[i] < 0 ? 0 : -1;
+                if (matchLeft[i] < 0) {
+                    queue[tail++] = i;
+                }
+            }
+            while (head < tail) {
+                int left = queue[head++];
+                for (int right : adjacency[left]) {
+                    int next = matchRight[right];
+                    if (next < 0) {
+                        augmentable = true;
+                    } else if (distances[next] < 0) {
+                        distances[next] = distances[left] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            if (!augmentable) {
+                return;
+            }
+
+            // searches vertex disjoint shortest augmenting paths along the layers
+            Arrays.fill(edgeIndices, 0);
+            for (int start = 0; start < size; ++start) {
+                if (matchLeft[start] >= 0) {
+                    continue;
+                }
+                int depth = 0;
+                path[0] = start;
+                while (depth >= 0) {
+                    int left = path[depth];
+                    if (edgeIndices[left] == adjacency[left].length) {
+                        // dead end, never to be visited again in this phase
+                        distances[left] = -1;
+                        --depth;
+                        continue;
+                    }
+                    int right = adjacency[left][edgeIndices[left]++];
+                    int next = matchRight[right];
+                    if (next < 0) {
+                        // flips the matching along the path
+                        for (int i = depth; i >= 0; --i) {
+                            int pathLeft = path[i];
+                            int pathRight = i == depth ? right
+                                    : adjacency[pathLeft][edgeIndices[pathLeft] - 1];
+                            matchLeft[pathLeft] = pathRight;
+                            matchRight[pathRight] = pathLeft;
+                            distances[pathLeft] = -1;
+                        }
+                        break;
+                    }
+                    if (distances[next] == distances[left] + 1) {
+                        path[++depth] = next;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Numbers the remaining nodes from 1 and builds the graph of their relations.
+     */
+    private void buildKernel() {
+        int[] index = new int[nrCurrent];
+        int[] nodes = new int[nrCurrent];
+        int size = 1;
+        int nrEdges = 0;
+        for (int node = 1; node < nrCurrent; ++node) {
+            if (!removed[node]) {
+                index[node] = size;
+                nodes[size++] = node;
+                nrEdges += compact(node);
+            }
+        }
+        kernelNodes = Arrays.copyOf(nodes, size);
+
+        // every relation is listed by both its ends, and kept from the one numbered first
+        nrEdges /= 2;
+        int[] edges = new int[2 * nrEdges];
+        int nrFilled = 0;
+        for (int i = 1; i < size; ++i) {
+            for (int j = 0; j < lengths[kernelNodes[i]]; ++j) {
+                int neighbour = index[adjacent[kernelNodes[i]][j]];
+                if (neighbour > i) {
+                    edges[nrFilled++] = i;
+                    edges[nrFilled++] = neighbour;
+                }
+            }
+        }
+        kernel = new Graph(size - 1, edges, nrEdges);
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright 2020
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs batch manifests whose jobs share their input and oracle files, which must neither clash
+ * nor leave any file behind them.
+ */
+public class BatchTest {
+    private static final int NR_JOBS = 2;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes the graph of task1 with the given number of disjoint cycles of five families, each
+     * of them needing three spies.
+     *
+     * @param nrCycles the number of cycles
+     * @return the input file
+     * @throws IOException input/output exception to be thrown
+     */
+    private Path writeCycles(int nrCycles) throws IOException {
+        StringBuilder input = new StringBuilder();
+        input.append(5 * nrCycles).append(' ').append(5 * nrCycles).append(" 3\n");
+        for (int cycle = 0; cycle < nrCycles; ++cycle) {
+            for (int i = 0; i < 5; ++i) {
+                input.append(5 * cycle + i + 1).append(' ').append(5 * cycle + (i + 1) % 5 + 1)
+                        .append('\n');
+            }
+        }
+        Path inputs = Files.createDirectory(directory.resolve("inputs"));
+        return Files.writeString(inputs.resolve("graph.in"), input);
+    }
+
+    /**
+     * Solves the same task1 job on the same input twice at once, under the given settings, all
+     * the jobs naming the same oracle files.
+     *
+     * @param settings the settings shared by the jobs
+     * @return the outputs of the jobs
+     * @throws Exception exception to be thrown
+     */
+    private List<String> solveTwice(String... settings) throws Exception {
+        Path input = writeCycles(4);
+        Path outputs = Files.createDirectory(directory.resolve("outputs"));
+        StringBuilder manifest = new StringBuilder();
+        for (int job = 0; job < NR_JOBS; ++job) {
+            manifest.append("task1 ").append(input).append(" sat.cnf sat.sol ")
+                    .append(outputs.resolve("job" + job + ".out")).append('\n');
+        }
+        Path manifestFile = Files.writeString(directory.resolve("manifest"), manifest);
+
+        String[] args = new String[2 + settings.length];
+        args[0] = "batch";
+        args[1] = manifestFile.toString();
+        System.arraycopy(settings, 0, args, 2, settings.length);
+        assertTrue(new Batch(NR_JOBS).run(manifestFile.toString(), args, 2));
+
+        // the inputs are left as they were and only the outputs of the jobs are written
+        assertEquals(List.of("graph.in"), list(input.getParent()));
+        assertEquals(List.of("job0.out", "job1.out"), list(outputs));
+        List<String> answers = new ArrayList<>();
+        for (int job = 0; job < NR_JOBS; ++job) {
+            answers.add(Files.readString(outputs.resolve("job" + job + ".out")));
+        }
+        return answers;
+    }
+
+    /**
+     * @param directory a directory
+     * @return the names of the files of the directory, in alphabetical order
+     * @throws IOException input/output exception to be thrown
+     */
+    private static List<String> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void jobsOnTheSameInputDoNotClash() throws Exception {
+        List<String> answers = solveTwice("--jobs=" + NR_JOBS, "--oracle=cdcl");
+        assertTrue(answers.get(0).startsWith("True"));
+        assertEquals(answers.get(0), answers.get(1));
+    }
+
+    @Test
+    public void failedOracleOnlyFailsItsJob() throws Exception {
+        // the external oracle script is not next to the tests, so its process exits with an
+        // error, which must not stop the other job
+        Path input = writeCycles(1);
+        Path outputs = Files.createDirectory(directory.resolve("outputs"));
+        Path manifestFile = Files.writeString(directory.resolve("manifest"),
+                "task1 " + input + " a.cnf a.sol " + outputs.resolve("process.out")
+                        + " --oracle=process\n"
+                        + "task1 " + input + " b.cnf b.sol " + outputs.resolve("cdcl.out")
+                        + " --oracle=cdcl\n");
+
+        String[] args = {"batch", manifestFile.toString(), "--jobs=" + NR_JOBS};
+        assertFalse(new Batch(NR_JOBS).run(manifestFile.toString(), args, 2));
+        assertTrue(Files.readString(outputs.resolve("cdcl.out")).startsWith("True"));
+    }
+
+    @Test
+    public void componentsOfJobsOnTheSameInputDoNotClash() throws Exception {
+        List<String> answers = solveTwice("--jobs=" + NR_JOBS, "--oracle=cdcl",
+                "--components=true", "--threads=2");
+        assertTrue(answers.get(0).startsWith("True"));
+        assertEquals(answers.get(0), answers.get(1));
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright 2020
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the answers of the CDCL solver on small random formulas, asked under random
+ * assumptions, with the ones found by trying every assignment.
+ */
+public class CdclOracleTest {
+    private static final int NR_FORMULAS = 300;
+    private static final int NR_VARIABLES = 8;
+
+    /**
+     * Draws a formula of clauses of one to three literals over the first variables.
+     *
+     * @param random the source of the draws
+     * @return the clauses of the formula
+     */
+    static int[][] randomFormula(Random random) {
+        int[][] clauses = new int[10 + random.nextInt(30)][];
+        for (int i = 0; i < clauses.length; ++i) {
+            clauses[i] = new int[1 + random.nextInt(3)];
+            for (int j = 0; j < clauses[i].length; ++j) {
+                int variable = 1 + random.nextInt(NR_VARIABLES);
+                clauses[i][j] = random.nextBoolean() ? variable : -variable;
+            }
+        }
+        return clauses;
+    }
+
+    /**
+     * @param clause     a clause
+     * @param assignment the truth value of every variable, as the bits of a number
+     * @return whether the assignment satisfies the clause
+     */
+    static boolean satisfies(int[] clause, int assignment) {
+        for (int literal : clause) {
+            if (((assignment >> (Math.abs(literal) - 1) & 1) == 1) == literal > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param clauses     the clauses of a formula
+     * @param assumptions literals which have to hold as well
+     * @return whether some assignment satisfies all the clauses and the assumptions
+     */
+    private static boolean bruteForce(int[][] clauses, int[] assumptions) {
+        for (int assignment = 0; assignment < 1 << NR_VARIABLES; ++assignment) {
+            boolean all = true;
+            for (int[] clause : clauses) {
+                all &= satisfies(clause, assignment);
+            }
+            for (int literal : assumptions) {
+                all &= satisfies(new int[] {literal}, assignment);
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param model the model given by the oracle
+     * @return the model as the bits of a number
+     */
+    private static int assignment(int[] model) {
+        int assignment = 0;
+        for (int variable = 1; variable <= NR_VARIABLES; ++variable) {
+            if (model[variable - 1] > 0) {
+                assignment |= 1 << (variable - 1);
+            }
+        }
+        return assignment;
+    }
+
+    @Test
+    public void answersMatchBruteForce() throws Exception {
+        Random random = new Random(1);
+        int nrSatisfiable = 0;
+        for (int formula = 0; formula < NR_FORMULAS; ++formula) {
+            int[][] clauses = randomFormula(random);
+            CdclOracle oracle = new CdclOracle();
+            ClauseSink writer = oracle.question();
+            writer.header(NR_VARIABLES, clauses.length);
+            for (int[] clause : clauses) {
+                for (int literal : clause) {
+                    writer.add(literal);
+                }
+                writer.add(0);
+            }
+            writer.close();
+
+            oracle.ask();
+            boolean expected = bruteForce(clauses, new int[0]);
+            assertEquals(expected, oracle.isSatisfiable());
+            if (expected) {
+                ++nrSatisfiable;
+                int assignment = assignment(oracle.getModel());
+                for (int[] clause : clauses) {
+                    assertTrue(satisfies(clause, assignment));
+                }
+            }
+        }
+        // the formulas are neither all satisfiable nor all unsatisfiable
+        assertTrue(nrSatisfiable > 0 && nrSatisfiable < NR_FORMULAS);
+    }
+
+    @Test
+    public void coresAreUnsatisfiableSubsetsOfTheAssumptions() throws Exception {
+        Random random = new Random(2);
+        for (int formula = 0; formula < NR_FORMULAS; ++formula) {
+            int[][] clauses = randomFormula(random);
+            CdclOracle oracle = new CdclOracle();
+            ClauseSink writer = oracle.question();
+            writer.header(NR_VARIABLES, clauses.length);
+            for (int[] clause : clauses) {
+                for (int literal : clause) {
+                    writer.add(literal);
+                }
+                writer.add(0);
+            }
+            writer.close();
+
+            // the same solver answers several sets of assumptions in a row
+            for (int question = 0; question < 5; ++question) {
+                int[] assumptions = new int[random.nextInt(NR_VARIABLES)];
+                for (int i = 0; i < assumptions.length; ++i) {
+                    int variable = 1 + random.nextInt(NR_VARIABLES);
+                    assumptions[i] = random.nextBoolean() ? variable : -variable;
+                }
+                oracle.ask(assumptions);
+                assertEquals(bruteForce(clauses, assumptions), oracle.isSatisfiable());
+                if (oracle.isSatisfiable()) {
+                    int assignment = assignment(oracle.getModel());
+                    for (int literal : assumptions) {
+                        assertTrue(satisfies(new int[] {literal}, assignment));
+                    }
+                    continue;
+                }
+                int[] core = oracle.getCore();
+                for (int literal : core) {
+                    boolean assumed = false;
+                    for (int assumption : assumptions) {
+                        assumed |= assumption == literal;
+                    }
+                    assertTrue(assumed, "the core holds " + literal + ", which is not assumed");
+                }
+                assertFalse(bruteForce(clauses, core));
+            }
+        }
+    }
+}
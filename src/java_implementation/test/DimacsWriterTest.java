@@ -0,0 +1,66 @@
+// Copyright 2020
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Formats the extreme numbers of a weighted question and reads them back.
+ */
+public class DimacsWriterTest {
+    private static final long[] WEIGHTS = {Long.MIN_VALUE, Long.MIN_VALUE + 1, -10, -1, 0, 1, 9,
+            10, Long.MAX_VALUE};
+
+    /**
+     * Writes a weighted question whose clauses are preceded by the given weights, through a
+     * buffer of the given capacity.
+     *
+     * @param bufferSize the capacity of the buffer of formatted clauses
+     * @return the lines of the question
+     * @throws Exception exception to be thrown
+     */
+    private static String[] write(int bufferSize) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DimacsWriter writer = new DimacsWriter(Channels.newChannel(output), false, bufferSize);
+        writer.header(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        for (long weight : WEIGHTS) {
+            writer.weight(weight);
+            writer.add(Integer.MAX_VALUE);
+            writer.add(-Integer.MAX_VALUE);
+            writer.add(0);
+        }
+        writer.close();
+        return output.toString(StandardCharsets.US_ASCII).split("\n");
+    }
+
+    /**
+     * Checks that every number of the question reads back as the one written.
+     *
+     * @param lines the lines of the question
+     */
+    private static void check(String[] lines) {
+        assertEquals("p wcnf " + Integer.MAX_VALUE + " " + Long.MAX_VALUE + " "
+                + Long.MAX_VALUE, lines[0]);
+        assertEquals(WEIGHTS.length + 1, lines.length);
+        for (int i = 0; i < WEIGHTS.length; ++i) {
+            String[] numbers = lines[i + 1].split(" ");
+            assertEquals(WEIGHTS[i], Long.parseLong(numbers[0]));
+            assertEquals(Integer.MAX_VALUE, Integer.parseInt(numbers[1]));
+            assertEquals(-Integer.MAX_VALUE, Integer.parseInt(numbers[2]));
+            assertEquals("0", numbers[3]);
+        }
+    }
+
+    @Test
+    public void extremeNumbersRoundTrip() throws Exception {
+        check(write(DimacsWriter.BUFFER_SIZE));
+    }
+
+    @Test
+    public void extremeNumbersRoundTripAcrossFlushes() throws Exception {
+        check(write(32));
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright 2020
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the costs of the answers of the Max-SAT oracle on small random weighted formulas with
+ * the optimal ones found by trying every assignment.
+ */
+public class MaxSatOracleTest {
+    private static final int NR_FORMULAS = 200;
+    private static final int NR_VARIABLES = 8;
+
+    /**
+     * @param hard       the hard clauses of a formula
+     * @param soft       the soft clauses of the formula
+     * @param weights    the weights of the soft clauses
+     * @param assignment the truth value of every variable, as the bits of a number
+     * @return the weight of the soft clauses falsified by the assignment, or -1 if it falsifies
+     *         a hard clause
+     */
+    private static long cost(int[][] hard, int[][] soft, long[] weights, int assignment) {
+        for (int[] clause : hard) {
+            if (!CdclOracleTest.satisfies(clause, assignment)) {
+                return -1;
+            }
+        }
+        long cost = 0;
+        for (int i = 0; i < soft.length; ++i) {
+            if (!CdclOracleTest.satisfies(soft[i], assignment)) {
+                cost += weights[i];
+            }
+        }
+        return cost;
+    }
+
+    @Test
+    public void costsMatchBruteForce() throws Exception {
+        Random random = new Random(3);
+        for (int formula = 0; formula < NR_FORMULAS; ++formula) {
+            int[][] hard = CdclOracleTest.randomFormula(random);
+            hard = Arrays.copyOf(hard, hard.length / 3);
+            int[][] soft = CdclOracleTest.randomFormula(random);
+            long[] weights = new long[soft.length];
+            long top = 1;
+            for (int i = 0; i < soft.length; ++i) {
+                // unit weights, or exponential ones like the bonus task's
+                weights[i] = formula % 2 == 0 ? 1 + random.nextInt(5) : 1L << random.nextInt(20);
+                top += weights[i];
+            }
+
+            MaxSatOracle oracle = new MaxSatOracle(0);
+            ClauseSink writer = oracle.question();
+            writer.header(NR_VARIABLES, hard.length + soft.length, top);
+            for (int i = 0; i < hard.length + soft.length; ++i) {
+                int[] clause = i < hard.length ? hard[i] : soft[i - hard.length];
+                writer.weight(i < hard.length ? top : weights[i - hard.length]);
+                for (int literal : clause) {
+                    writer.add(literal);
+                }
+                writer.add(0);
+            }
+            writer.close();
+            oracle.ask();
+
+            long optimum = -1;
+            for (int assignment = 0; assignment < 1 << NR_VARIABLES; ++assignment) {
+                long cost = cost(hard, soft, weights, assignment);
+                if (cost >= 0 && (optimum < 0 || cost < optimum)) {
+                    optimum = cost;
+                }
+            }
+            assertEquals(optimum >= 0, oracle.isSatisfiable());
+            if (optimum < 0) {
+                continue;
+            }
+            assertTrue(oracle.optimal);
+            assertEquals(optimum, oracle.upperBound);
+            int[] model = oracle.getModel();
+            int assignment = 0;
+            for (int variable = 1; variable <= NR_VARIABLES; ++variable) {
+                if (model[variable - 1] > 0) {
+                    assignment |= 1 << (variable - 1);
+                }
+            }
+            assertEquals(optimum, cost(hard, soft, weights, assignment));
+        }
+    }
+
+    @Test
+    public void invalidWeightsAreRejected() throws Exception {
+        MaxSatOracle oracle = new MaxSatOracle(0);
+        assertThrows(IllegalArgumentException.class,
+                () -> oracle.question().header(2, 2, 0));
+        ClauseSink writer = oracle.question();
+        writer.header(2, 3, Long.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> writer.weight(0));
+        assertThrows(IllegalArgumentException.class, () -> writer.weight(Long.MIN_VALUE));
+        // two soft clauses whose weights sum beyond 64 bits
+        writer.weight(Long.MAX_VALUE - 1);
+        writer.add(1);
+        writer.add(0);
+        writer.weight(Long.MAX_VALUE - 1);
+        writer.add(2);
+        assertThrows(IllegalArgumentException.class, () -> writer.add(0));
+    }
+}
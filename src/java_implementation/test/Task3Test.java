@@ -0,0 +1,65 @@
+// Copyright 2020
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the search strategies of task3 asking task2 about several sizes of the clique, whose
+ * arrests must cover every relation of the graph.
+ */
+public class Task3Test {
+    @TempDir
+    Path directory;
+
+    /**
+     * Solves task3 on a generated graph under the given search strategy and checks that the
+     * arrests cover all of its relations.
+     *
+     * @param search the search strategy
+     * @return the number of arrests
+     * @throws Exception exception to be thrown
+     */
+    private int solveAndCheckCover(String search) throws Exception {
+        Path input = directory.resolve("graph.in");
+        new Generator("er", new String[] {"--task=task3", "--families=40", "--density=0.15",
+                "--seed=13"}, 0).generate(input.toString());
+        Path output = directory.resolve(search + ".out");
+        Main.main(new String[] {"task3", input.toString(),
+                directory.resolve("sat.cnf").toString(), directory.resolve("sat.sol").toString(),
+                output.toString(), "--oracle=cdcl", "--clique=cardinality",
+                "--search=" + search});
+
+        Set<Integer> arrests = new HashSet<>();
+        for (String family : Files.readString(output).trim().split("\\s+")) {
+            arrests.add(Integer.parseInt(family));
+        }
+        List<String> lines = Files.readAllLines(input);
+        int nrRelations = Integer.parseInt(lines.get(0).trim().split("\\s+")[1]);
+        for (String line : lines.subList(1, nrRelations + 1)) {
+            int[] relation = Arrays.stream(line.trim().split("\\s+"))
+                    .mapToInt(Integer::parseInt).toArray();
+            assertTrue(arrests.contains(relation[0]) || arrests.contains(relation[1]),
+                    search + " search leaves the relation " + line + " uncovered");
+        }
+        return arrests.size();
+    }
+
+    @Test
+    public void ascendingSearchCoversEveryRelation() throws Exception {
+        assertEquals(solveAndCheckCover("linear"), solveAndCheckCover("ascending"));
+    }
+
+    @Test
+    public void binarySearchCoversEveryRelation() throws Exception {
+        assertEquals(solveAndCheckCover("linear"), solveAndCheckCover("binary"));
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright 2020
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lifts minimum covers of the kernels of small random graphs, which must be minimum covers of
+ * the original graphs, as found by trying every set of nodes.
+ */
+public class VertexCoverKernelTest {
+    private static final int NR_GRAPHS = 300;
+    private static final int MAX_NODES = 14;
+
+    /**
+     * Finds a minimum cover of a graph by trying every set of nodes.
+     *
+     * @param graph the graph
+     * @return the state of the nodes of the cover, indexed from 1
+     */
+    private static boolean[] minimumCover(Graph graph) {
+        int best = -1;
+        for (int set = 0; set < 1 << graph.nrNodes; ++set) {
+            if ((best < 0 || Integer.bitCount(set) < Integer.bitCount(best))
+                    && covers(graph, set)) {
+                best = set;
+            }
+        }
+        boolean[] cover = new boolean[graph.nrNodes + 1];
+        for (int node = 1; node <= graph.nrNodes; ++node) {
+            cover[node] = (best >> (node - 1) & 1) == 1;
+        }
+        return cover;
+    }
+
+    /**
+     * @param graph a graph
+     * @param set   a set of nodes, as the bits of a number
+     * @return whether every edge of the graph has an end in the set
+     */
+    private static boolean covers(Graph graph, int set) {
+        for (int node = 1; node <= graph.nrNodes; ++node) {
+            for (int i = 0; i < graph.degree(node); ++i) {
+                if ((set >> (node - 1) & 1) == 0
+                        && (set >> (graph.neighbour(node, i) - 1) & 1) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void liftedCoversAreMinimumCovers() {
+        Random random = new Random(4);
+        for (int test = 0; test < NR_GRAPHS; ++test) {
+            // sparse graphs exercise the folds, denser ones the relaxation
+            int nrNodes = 1 + random.nextInt(MAX_NODES);
+            double density = random.nextDouble() * 0.6;
+            int[] edges = new int[nrNodes * (nrNodes - 1)];
+            int nrEdges = 0;
+            for (int node1 = 1; node1 <= nrNodes; ++node1) {
+                for (int node2 = node1 + 1; node2 <= nrNodes; ++node2) {
+                    if (random.nextDouble() < density) {
+                        edges[2 * nrEdges] = node1;
+                        edges[2 * nrEdges + 1] = node2;
+                        ++nrEdges;
+                    }
+                }
+            }
+            Graph graph = new Graph(nrNodes, edges, nrEdges);
+            boolean[] optimum = minimumCover(graph);
+            int optimumSize = 0;
+            for (boolean inCover : optimum) {
+                optimumSize += inCover ? 1 : 0;
+            }
+
+            VertexCoverKernel kernel = new VertexCoverKernel(graph);
+            List<Integer> lifted = kernel.lift(minimumCover(kernel.kernel));
+            Set<Integer> cover = new HashSet<>(lifted);
+            assertEquals(lifted.size(), cover.size());
+            assertEquals(optimumSize, cover.size());
+            for (int node = 1; node <= nrNodes; ++node) {
+                for (int i = 0; i < graph.degree(node); ++i) {
+                    assertTrue(cover.contains(node) || cover.contains(graph.neighbour(node, i)));
+                }
+            }
+        }
+    }
+}